@@ -2,12 +2,21 @@ package com.kmbank;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
+@EnableScheduling
 public class KmBankApiApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(KmBankApiApplication.class, args);
+		SpringApplication app = new SpringApplication(KmBankApiApplication.class);
+		// Lowest-precedence defaults; application.yml overrides any of these
+		app.setDefaultProperties(Map.of(
+				"management.endpoints.web.exposure.include", "health,metrics"
+		));
+		app.run(args);
 	}
 
 }
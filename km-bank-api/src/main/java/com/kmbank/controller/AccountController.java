@@ -1,15 +1,24 @@
 package com.kmbank.controller;
 
 import com.kmbank.dto.DTOs.*;
+import com.kmbank.entity.Account;
 import com.kmbank.security.CustomUserDetails;
 import com.kmbank.service.AccountService;
+import com.kmbank.service.StatementService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +28,7 @@ import java.util.Map;
 public class AccountController {
 
     private final AccountService accountService;
+    private final StatementService statementService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<AccountResponse>>> getMyAccounts(
@@ -35,6 +45,24 @@ public class AccountController {
         return ResponseEntity.ok(ApiResponse.success(account));
     }
 
+    // Monthly statement (month=yyyy-MM), streamed as a JSON attachment
+    @GetMapping("/{id}/statement")
+    public void getStatement(
+            @PathVariable Long id,
+            @RequestParam YearMonth month,
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            HttpServletResponse response) throws IOException {
+        Account account = statementService.getStatementAccount(id, userDetails.getUser().getId(), month);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("statement-" + account.getAccountNumber() + "-" + month + ".json")
+                .build()
+                .toString());
+        statementService.writeStatement(account, month, response.getOutputStream());
+    }
+
     @GetMapping("/number/{accountNumber}")
     public ResponseEntity<ApiResponse<AccountResponse>> getAccountByNumber(
             @PathVariable String accountNumber) {
@@ -2,15 +2,28 @@ package com.kmbank.controller;
 
 import com.kmbank.dto.DTOs.*;
 import com.kmbank.entity.Account;
+import com.kmbank.entity.Transaction;
 import com.kmbank.entity.User;
+import com.kmbank.exception.Exceptions;
 import com.kmbank.service.AdminService;
+import com.kmbank.service.LedgerReconciliationService;
+import com.kmbank.service.TransactionExportService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @RestController
@@ -20,6 +33,8 @@ import java.util.Map;
 public class AdminController {
 
     private final AdminService adminService;
+    private final TransactionExportService transactionExportService;
+    private final LedgerReconciliationService ledgerReconciliationService;
 
     // ============ DASHBOARD =============
 
@@ -115,6 +130,31 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
+    // Streams every matching transaction; the response is written synchronously so a long
+    // export is not cut off by the async request timeout
+    @GetMapping("/transactions/export")
+    public void exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Transaction.TransactionType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long accountId,
+            HttpServletResponse response) throws IOException {
+        TransactionExportService.Format exportFormat = switch (format.toLowerCase()) {
+            case "csv" -> TransactionExportService.Format.CSV;
+            case "ndjson" -> TransactionExportService.Format.NDJSON;
+            default -> throw new Exceptions.BadRequestException("Unsupported export format: " + format);
+        };
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("transactions." + format.toLowerCase())
+                .build()
+                .toString());
+        transactionExportService.export(exportFormat, type, from, to, accountId, response.getOutputStream());
+    }
+
     @GetMapping("/transactions/{id}")
     public ResponseEntity<ApiResponse<AdminTransactionResponse>> getTransactionDetail(@PathVariable Long id) {
         AdminTransactionResponse transaction = adminService.getTransactionDetail(id);
@@ -129,4 +169,29 @@ public class AdminController {
         AnalyticsResponse analytics = adminService.getAnalytics(period);
         return ResponseEntity.ok(ApiResponse.success(analytics));
     }
+
+    // Backfills or repairs the analytics rollups for [from, to] from raw transactions
+    @PostMapping("/analytics/rollups/rebuild")
+    public ResponseEntity<ApiResponse<Void>> rebuildAnalyticsRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        adminService.rebuildAnalyticsRollups(from, to);
+        return ResponseEntity.ok(ApiResponse.success("Analytics rollups rebuilt", null));
+    }
+
+    // ============= RECONCILIATION =================
+
+    @GetMapping("/reconciliation")
+    public ResponseEntity<ApiResponse<ReconciliationReport>> getReconciliationReport() {
+        return ResponseEntity.ok(ApiResponse.success(ledgerReconciliationService.getLastReport()));
+    }
+
+    // Re-verifies every account from zero in the background; poll GET /reconciliation for the
+    // result. 409 while another run is in progress.
+    @PostMapping("/reconciliation/full")
+    public ResponseEntity<ApiResponse<ReconciliationReport>> startFullReconciliation() {
+        ReconciliationReport report = ledgerReconciliationService.start(LedgerReconciliationService.Mode.FULL);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Full reconciliation started", report));
+    }
 }
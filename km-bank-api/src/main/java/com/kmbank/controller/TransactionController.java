@@ -3,6 +3,7 @@ package com.kmbank.controller;
 import com.kmbank.dto.DTOs.*;
 import com.kmbank.security.CustomUserDetails;
 import com.kmbank.service.TransactionService;
+import com.kmbank.service.WriteBehindPostingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final WriteBehindPostingService writeBehindPostingService;
 
     // THIS IS THE MISSING/BROKEN ENDPOINT
     @GetMapping
@@ -31,11 +33,32 @@ public class TransactionController {
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
+    // Keyset paging: selected when a cursor param is present (empty for the first page)
+    @GetMapping(params = "cursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<TransactionResponse>>> getTransactionsByCursor(
+            @RequestParam Long accountId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "true") boolean includeTotal,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        CursorPageResponse<TransactionResponse> transactions = transactionService.getTransactionsByAccountIdKeyset(
+                accountId, userDetails.getUser().getId(), cursor, Math.min(Math.max(size, 1), 100), includeTotal);
+
+        return ResponseEntity.ok(ApiResponse.success(transactions));
+    }
+
     @PostMapping("/deposit")
     public ResponseEntity<ApiResponse<TransactionResponse>> deposit(
             @Valid @RequestBody DepositWithdrawRequest request,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
 
+        // Journaled deposits wait for the journal sync, so they are dispatched before any
+        // transaction (and pooled connection) is opened for the request
+        if (writeBehindPostingService.isEnabled()) {
+            TransactionResponse transaction = writeBehindPostingService.deposit(request, userDetails.getUser().getId());
+            return ResponseEntity.ok(ApiResponse.success("Deposit accepted", transaction));
+        }
         TransactionResponse transaction = transactionService.deposit(request, userDetails.getUser().getId());
         return ResponseEntity.ok(ApiResponse.success("Deposit successful", transaction));
     }
@@ -57,4 +80,16 @@ public class TransactionController {
         TransactionResponse transaction = transactionService.transfer(request, userDetails.getUser().getId());
         return ResponseEntity.ok(ApiResponse.success("Transfer successful", transaction));
     }
-}
\ No newline at end of file
+
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<ApiResponse<BatchTransferResponse>> batchTransfer(
+            @Valid @RequestBody BatchTransferRequest request,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        BatchTransferResponse result = transactionService.batchTransfer(request, userDetails.getUser().getId());
+        String message = result.getFailureCount() == 0
+                ? "Batch transfer successful"
+                : "Batch transfer completed with " + result.getFailureCount() + " failed item(s)";
+        return ResponseEntity.ok(ApiResponse.success(message, result));
+    }
+}
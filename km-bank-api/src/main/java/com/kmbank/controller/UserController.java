@@ -5,6 +5,7 @@ import com.kmbank.entity.User;
 import com.kmbank.exception.Exceptions;
 import com.kmbank.repository.UserRepository;
 import com.kmbank.security.CustomUserDetails;
+import com.kmbank.security.PrincipalCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -16,17 +17,26 @@ public class UserController {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
     // Manual constructor
-    public UserController(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserController(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                          PrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
 
     @GetMapping("/me")
     public ResponseEntity<ApiResponse<UserResponse>> getCurrentUser(
             @AuthenticationPrincipal CustomUserDetails userDetails) {
-        return ResponseEntity.ok(ApiResponse.success(UserResponse.fromEntity(userDetails.getUser())));
+        User user = userDetails.getUser();
+        if (userDetails.isClaimsOnly()) {
+            // Stateless principals only carry id, email and role
+            user = userRepository.findById(user.getId())
+                    .orElseThrow(() -> new Exceptions.ResourceNotFoundException("User not found"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(UserResponse.fromEntity(user)));
     }
 
     @PatchMapping("/me")
@@ -51,6 +61,7 @@ public class UserController {
         }
 
         user = userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
 
         return ResponseEntity.ok(ApiResponse.success("Profile updated successfully", UserResponse.fromEntity(user)));
     }
@@ -76,6 +87,7 @@ public class UserController {
         // Update password
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
 
         return ResponseEntity.ok(ApiResponse.success("Password changed successfully", null));
     }
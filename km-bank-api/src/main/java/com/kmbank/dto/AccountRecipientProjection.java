@@ -0,0 +1,7 @@
+package com.kmbank.dto;
+
+public interface AccountRecipientProjection {
+    Long getId();
+    String getAccountNumber();
+    String getOwnerName();
+}
@@ -0,0 +1,11 @@
+package com.kmbank.dto;
+
+import java.math.BigDecimal;
+
+public interface BalanceDriftProjection {
+    Long getAccountId();
+    BigDecimal getActualBalance();
+    BigDecimal getExpectedBalance();
+    Long getEntriesChecked();
+    Long getMismatchedEntries();
+}
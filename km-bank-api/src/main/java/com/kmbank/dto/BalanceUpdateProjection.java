@@ -0,0 +1,8 @@
+package com.kmbank.dto;
+
+import java.math.BigDecimal;
+
+public interface BalanceUpdateProjection {
+    BigDecimal getBalance();
+    String getAccountNumber();
+}
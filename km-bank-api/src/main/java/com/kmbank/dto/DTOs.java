@@ -2,8 +2,10 @@ package com.kmbank.dto;
 
 import com.kmbank.dto.AccountTypeStatProjection;
 import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
 import com.kmbank.entity.Transaction;
 import com.kmbank.entity.User;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
@@ -192,6 +194,42 @@ public class DTOs {
         private String recipientBank;
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchTransferRequest {
+        // All items must share the same source account
+        @NotEmpty(message = "At least one transfer is required")
+        @Valid
+        private List<TransferRequest> transfers;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchTransferItemResult {
+        private int index;
+        private boolean success;
+        private String message;
+        private TransactionResponse transaction;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchTransferResponse {
+        private Long sourceAccountId;
+        private int totalCount;
+        private int successCount;
+        private int failureCount;
+        private BigDecimal totalAmount;
+        private BigDecimal balanceAfter;
+        private List<BatchTransferItemResult> results;
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -254,6 +292,48 @@ public class DTOs {
         public static TransactionResponse fromEntity(Transaction transaction) {
             return fromEntity(transaction, null);
         }
+
+        // For single-account postings applied in place, where the account row was never loaded
+        public static TransactionResponse fromPosting(Transaction transaction, String accountNumber, boolean isCredit) {
+            return TransactionResponse.builder()
+                    .id(transaction.getId())
+                    .referenceNumber(transaction.getReferenceNumber())
+                    .transactionType(transaction.getTransactionType().name())
+                    .amount(transaction.getAmount())
+                    .currency(transaction.getCurrency())
+                    .description(transaction.getDescription())
+                    .status(transaction.getStatus().name())
+                    .sourceAccountNumber(isCredit ? null : accountNumber)
+                    .destinationAccountNumber(isCredit ? accountNumber : null)
+                    .balanceAfter(transaction.getBalanceAfter())
+                    .createdAt(transaction.getCreatedAt())
+                    .isCredit(isCredit)
+                    .build();
+        }
+
+        // One row of an account's history: direction and running balance come from the ledger leg
+        public static TransactionResponse fromLedgerEntry(AccountLedgerEntry entry) {
+            TransactionResponse response = fromEntity(entry.getTransaction());
+            response.setCredit(entry.getDirection() == AccountLedgerEntry.Direction.CREDIT);
+            if (entry.getBalanceAfter() != null) {
+                response.setBalanceAfter(entry.getBalanceAfter());
+            }
+            return response;
+        }
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CursorPageResponse<T> {
+        private List<T> content;
+        private int size;
+        private boolean hasNext;
+        // Opaque token for the next page; null on the last page
+        private String nextCursor;
+        // Null when the client opted out of the total count
+        private Long totalElements;
     }
 
     // ============ DASHBOARD DTOs ============
@@ -420,5 +500,35 @@ public class DTOs {
         private long transactionCount;
     }
 
+    // ============ RECONCILIATION ============
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReconciliationReport {
+        private String mode;
+        private boolean running;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private long durationMs;
+        private long accountsChecked;
+        private long entriesChecked;
+        private long driftCount;
+        private List<BalanceDriftResponse> drifts;  // first drifts found, capped
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BalanceDriftResponse {
+        private Long accountId;
+        private BigDecimal actualBalance;
+        private BigDecimal expectedBalance;
+        private BigDecimal drift;
+        private long mismatchedEntries;
+    }
+
 
 }
@@ -0,0 +1,11 @@
+package com.kmbank.dto;
+
+import java.math.BigDecimal;
+
+public interface DashboardTotalsProjection {
+    BigDecimal getTotalBalance();
+    Long getTotalAccounts();
+    Long getTotalTransactions();
+    BigDecimal getMonthlyIncome();
+    BigDecimal getMonthlyExpenses();
+}
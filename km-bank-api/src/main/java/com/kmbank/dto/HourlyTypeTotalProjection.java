@@ -0,0 +1,12 @@
+package com.kmbank.dto;
+
+import com.kmbank.entity.Transaction;
+
+import java.math.BigDecimal;
+
+public interface HourlyTypeTotalProjection {
+    Integer getBucketHour();
+    Transaction.TransactionType getTransactionType();
+    Long getTransactionCount();
+    BigDecimal getTotalAmount();
+}
@@ -22,7 +22,8 @@ import java.util.UUID;
 public class Account {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @SequenceGenerator(name = "accounts_seq", sequenceName = "accounts_seq", allocationSize = 20)
     private Long id;
 
     @Column(name = "account_number", nullable = false, unique = true)
@@ -60,6 +61,12 @@ public class Account {
     @Builder.Default
     private List<Transaction> incomingTransactions = new ArrayList<>();
 
+    // Optimistic concurrency check for balance updates (transactions.concurrency-mode=optimistic)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private Long version = 0L;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,30 @@
+package com.kmbank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// The last reconciled balance of an account: its balance as of snapshotAt, derived
+// from the live balance minus what was posted after. Incremental reconciliation only
+// re-verifies ledger entries created from snapshotAt on.
+@Entity
+@Table(name = "account_balance_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalanceSnapshot {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "snapshot_at", nullable = false)
+    private LocalDateTime snapshotAt;
+}
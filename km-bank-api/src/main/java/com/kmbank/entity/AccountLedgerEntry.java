@@ -0,0 +1,68 @@
+package com.kmbank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One row per account leg of a Transaction (double entry). Owner and transaction type
+// are denormalized so history and dashboard reads are range scans on this table alone.
+@Entity
+@Table(name = "account_ledger_entries", indexes = {
+        @Index(name = "idx_ledger_account_created", columnList = "account_id, created_at DESC, id DESC"),
+        @Index(name = "idx_ledger_user_created", columnList = "user_id, created_at DESC, id DESC")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_ledger_entries_seq")
+    @SequenceGenerator(name = "account_ledger_entries_seq", sequenceName = "account_ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transaction_id", nullable = false)
+    private Transaction transaction;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false)
+    private Transaction.TransactionType transactionType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Direction direction;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    // Running balance of this account after the leg was applied
+    @Column(name = "balance_after", precision = 19, scale = 2)
+    private BigDecimal balanceAfter;
+
+    // Same as the transaction's when it has one, else set on insert
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void defaultCreatedAt() {
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+    }
+
+    public enum Direction {
+        CREDIT, DEBIT
+    }
+}
@@ -0,0 +1,23 @@
+package com.kmbank.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "transaction_rollups_daily")
+@IdClass(TransactionRollup.Key.class)
+@NoArgsConstructor
+public class DailyTransactionRollup extends TransactionRollup {
+
+    public DailyTransactionRollup(LocalDateTime bucketStart) {
+        super(bucketStart);
+    }
+
+    public DailyTransactionRollup(LocalDateTime bucketStart, int shard) {
+        super(bucketStart, shard);
+    }
+}
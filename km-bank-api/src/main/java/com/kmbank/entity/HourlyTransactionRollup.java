@@ -0,0 +1,23 @@
+package com.kmbank.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "transaction_rollups_hourly")
+@IdClass(TransactionRollup.Key.class)
+@NoArgsConstructor
+public class HourlyTransactionRollup extends TransactionRollup {
+
+    public HourlyTransactionRollup(LocalDateTime bucketStart) {
+        super(bucketStart);
+    }
+
+    public HourlyTransactionRollup(LocalDateTime bucketStart, int shard) {
+        super(bucketStart, shard);
+    }
+}
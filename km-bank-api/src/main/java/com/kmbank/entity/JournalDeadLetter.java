@@ -0,0 +1,55 @@
+package com.kmbank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// A journaled deposit the flusher could not apply, e.g. because its account was deleted
+// after the deposit was accepted. Parked here for an operator instead of blocking the
+// postings behind it.
+@Entity
+@Table(name = "journal_dead_letters")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JournalDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "journal_dead_letters_seq")
+    @SequenceGenerator(name = "journal_dead_letters_seq", sequenceName = "journal_dead_letters_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "journal_seq", nullable = false)
+    private Long journalSeq;
+
+    @Column(name = "reference_number", nullable = false, unique = true)
+    private String referenceNumber;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(length = 500)
+    private String description;
+
+    // When the deposit was accepted and journaled
+    @Column(name = "accepted_at", nullable = false)
+    private LocalDateTime acceptedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -2,15 +2,17 @@ package com.kmbank.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.CreationTimestamp;
-
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_created", columnList = "created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,7 +22,8 @@ import java.util.UUID;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "reference_number", nullable = false, unique = true)
@@ -65,15 +68,38 @@ public class Transaction {
     @Column(name = "balance_after", precision = 19, scale = 2)
     private BigDecimal balanceAfter;
 
-    @CreationTimestamp
+    // Set on insert unless the posting was accepted earlier (write-behind deposits)
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
+    // Persisted with the transaction, in the same database transaction
+    @OneToMany(mappedBy = "transaction", cascade = CascadeType.PERSIST, fetch = FetchType.LAZY)
+    @Builder.Default
+    private List<AccountLedgerEntry> ledgerEntries = new ArrayList<>();
+
+    public void addLedgerEntry(Account account, Long userId, AccountLedgerEntry.Direction direction,
+                               BigDecimal accountBalanceAfter) {
+        ledgerEntries.add(AccountLedgerEntry.builder()
+                .account(account)
+                .userId(userId)
+                .transaction(this)
+                .transactionType(transactionType)
+                .direction(direction)
+                .amount(amount)
+                .balanceAfter(accountBalanceAfter)
+                .createdAt(createdAt)
+                .build());
+    }
+
     @PrePersist
     public void generateReferenceNumber() {
         if (this.referenceNumber == null) {
             this.referenceNumber = "TXN" + UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase();
         }
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+            ledgerEntries.forEach(entry -> entry.setCreatedAt(createdAt));
+        }
     }
 
     public enum TransactionType {
@@ -0,0 +1,97 @@
+package com.kmbank.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Per-type posting totals for one time bucket, keyed by the bucket's start and a shard.
+// Postings add to one randomly chosen shard row of their bucket, so concurrent postings
+// in the same hour rarely wait on the same row; readers sum the shards.
+@MappedSuperclass
+@Getter
+@Setter
+@NoArgsConstructor
+public abstract class TransactionRollup {
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Id
+    @Column(name = "shard")
+    private int shard;
+
+    @Column(name = "deposit_count", nullable = false)
+    private long depositCount;
+
+    @Column(name = "deposit_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal depositTotal = BigDecimal.ZERO;
+
+    @Column(name = "withdrawal_count", nullable = false)
+    private long withdrawalCount;
+
+    @Column(name = "withdrawal_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal withdrawalTotal = BigDecimal.ZERO;
+
+    @Column(name = "transfer_count", nullable = false)
+    private long transferCount;
+
+    @Column(name = "transfer_total", nullable = false, precision = 19, scale = 2)
+    private BigDecimal transferTotal = BigDecimal.ZERO;
+
+    protected TransactionRollup(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    protected TransactionRollup(LocalDateTime bucketStart, int shard) {
+        this.bucketStart = bucketStart;
+        this.shard = shard;
+    }
+
+    // PAYMENT and REFUND are not posted anywhere yet, so they have no columns
+    public void add(Transaction.TransactionType type, long count, BigDecimal amount) {
+        switch (type) {
+            case DEPOSIT -> {
+                depositCount += count;
+                depositTotal = depositTotal.add(amount);
+            }
+            case WITHDRAWAL -> {
+                withdrawalCount += count;
+                withdrawalTotal = withdrawalTotal.add(amount);
+            }
+            case TRANSFER -> {
+                transferCount += count;
+                transferTotal = transferTotal.add(amount);
+            }
+            default -> {
+            }
+        }
+    }
+
+    public void add(TransactionRollup other) {
+        add(Transaction.TransactionType.DEPOSIT, other.depositCount, other.depositTotal);
+        add(Transaction.TransactionType.WITHDRAWAL, other.withdrawalCount, other.withdrawalTotal);
+        add(Transaction.TransactionType.TRANSFER, other.transferCount, other.transferTotal);
+    }
+
+    public long getTransactionCount() {
+        return depositCount + withdrawalCount + transferCount;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private int shard;
+    }
+}
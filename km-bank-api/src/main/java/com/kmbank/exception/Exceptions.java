@@ -38,4 +38,25 @@ public class Exceptions {
             super(message);
         }
     }
+
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public static class ConcurrentUpdateException extends RuntimeException {
+        public ConcurrentUpdateException(String message) {
+            super(message);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public static class TooManyRequestsException extends RuntimeException {
+        public TooManyRequestsException(String message) {
+            super(message);
+        }
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class ServiceUnavailableException extends RuntimeException {
+        public ServiceUnavailableException(String message) {
+            super(message);
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package com.kmbank.repository;
+
+import com.kmbank.entity.AccountBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface AccountBalanceCheckpointRepository
+        extends JpaRepository<AccountBalanceCheckpoint, AccountBalanceCheckpoint.Key> {
+
+    // The checkpoint at periodStart, or else the closest one before it
+    Optional<AccountBalanceCheckpoint> findFirstByAccountIdAndPeriodStartLessThanEqualOrderByPeriodStartDesc(
+            Long accountId, LocalDate periodStart);
+
+    // Checkpoints are immutable, so a concurrent writer of the same boundary wrote the same value
+    @Modifying
+    @Query(value = "INSERT INTO account_balance_checkpoints (account_id, period_start, opening_balance, created_at) " +
+            "VALUES (:accountId, :periodStart, :openingBalance, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("accountId") Long accountId,
+                       @Param("periodStart") LocalDate periodStart,
+                       @Param("openingBalance") BigDecimal openingBalance);
+
+    // Checkpoints every account at a boundary that has just passed: the live balance minus
+    // whatever was posted since, read in one statement so both come from the same snapshot
+    @Modifying
+    @Query(value = "INSERT INTO account_balance_checkpoints (account_id, period_start, opening_balance, created_at) " +
+            "SELECT a.id, :periodStart, a.balance - COALESCE((" +
+            "SELECT SUM(CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END) " +
+            "FROM account_ledger_entries e " +
+            "WHERE e.account_id = a.id AND e.created_at >= :boundary), 0), CURRENT_TIMESTAMP " +
+            "FROM accounts a " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int checkpointAllAccounts(@Param("periodStart") LocalDate periodStart,
+                              @Param("boundary") LocalDateTime boundary);
+
+    // Checkpoints at boundaries after `day`, which a posting dated on that day changes
+    @Modifying
+    @Query("DELETE FROM AccountBalanceCheckpoint c WHERE c.accountId = :accountId AND c.periodStart > :day")
+    int deleteAfter(@Param("accountId") Long accountId, @Param("day") LocalDate day);
+
+    @Modifying
+    @Query("DELETE FROM AccountBalanceCheckpoint c WHERE c.accountId IN " +
+            "(SELECT a.id FROM Account a WHERE a.user.id = :userId)")
+    int deleteByUserId(@Param("userId") Long userId);
+}
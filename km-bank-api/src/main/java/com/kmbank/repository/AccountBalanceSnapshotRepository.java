@@ -0,0 +1,67 @@
+package com.kmbank.repository;
+
+import com.kmbank.dto.BalanceDriftProjection;
+import com.kmbank.entity.AccountBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceSnapshotRepository extends JpaRepository<AccountBalanceSnapshot, Long> {
+
+    // One row per account in [lo, hi): the live balance against the snapshot plus every
+    // ledger entry since it (from zero when full or unsnapshotted), and how many entries
+    // carry a balance_after that disagrees with the running total at that point
+    @Query(value = "SELECT a.id AS accountId, a.balance AS actualBalance, " +
+            "COALESCE(s.balance, 0) + COALESCE(SUM(l.delta), 0) AS expectedBalance, " +
+            "COUNT(l.delta) AS entriesChecked, " +
+            "COALESCE(SUM(CASE WHEN l.balance_after IS NOT NULL " +
+            "AND l.balance_after <> COALESCE(s.balance, 0) + l.running THEN 1 ELSE 0 END), 0) AS mismatchedEntries " +
+            "FROM accounts a " +
+            "LEFT JOIN account_balance_snapshots s ON s.account_id = a.id AND :full = FALSE " +
+            "LEFT JOIN (" +
+            "SELECT e.account_id, e.balance_after, " +
+            "CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END AS delta, " +
+            "SUM(CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END) " +
+            "OVER (PARTITION BY e.account_id ORDER BY e.created_at, e.id) AS running " +
+            "FROM account_ledger_entries e " +
+            "LEFT JOIN account_balance_snapshots es ON es.account_id = e.account_id AND :full = FALSE " +
+            "WHERE e.account_id >= :lo AND e.account_id < :hi " +
+            "AND (es.snapshot_at IS NULL OR e.created_at >= es.snapshot_at)" +
+            ") l ON l.account_id = a.id " +
+            "WHERE a.id >= :lo AND a.id < :hi " +
+            "GROUP BY a.id, a.balance, s.balance",
+            nativeQuery = true)
+    List<BalanceDriftProjection> verifyRange(@Param("lo") long lo, @Param("hi") long hi, @Param("full") boolean full);
+
+    @Modifying
+    @Query(value = "DELETE FROM account_balance_snapshots " +
+            "WHERE account_id >= :lo AND account_id < :hi AND account_id NOT IN (:excluded)",
+            nativeQuery = true)
+    int deleteRange(@Param("lo") long lo, @Param("hi") long hi, @Param("excluded") Collection<Long> excluded);
+
+    // Re-snapshots accounts in [lo, hi) at `at`: the live balance minus what was posted
+    // since, read in one statement so both come from the same database snapshot
+    @Modifying
+    @Query(value = "INSERT INTO account_balance_snapshots (account_id, balance, snapshot_at) " +
+            "SELECT a.id, a.balance - COALESCE((" +
+            "SELECT SUM(CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END) " +
+            "FROM account_ledger_entries e " +
+            "WHERE e.account_id = a.id AND e.created_at >= :at), 0), :at " +
+            "FROM accounts a " +
+            "WHERE a.id >= :lo AND a.id < :hi AND a.id NOT IN (:excluded)",
+            nativeQuery = true)
+    int insertRange(@Param("lo") long lo, @Param("hi") long hi, @Param("excluded") Collection<Long> excluded,
+                    @Param("at") LocalDateTime at);
+
+    @Modifying
+    @Query("DELETE FROM AccountBalanceSnapshot s WHERE s.accountId IN " +
+            "(SELECT a.id FROM Account a WHERE a.user.id = :userId)")
+    int deleteByUserId(@Param("userId") Long userId);
+}
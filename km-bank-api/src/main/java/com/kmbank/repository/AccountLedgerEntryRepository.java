@@ -0,0 +1,144 @@
+package com.kmbank.repository;
+
+import com.kmbank.dto.DashboardTotalsProjection;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface AccountLedgerEntryRepository extends JpaRepository<AccountLedgerEntry, Long> {
+
+    int STATEMENT_FETCH_SIZE = 1000;
+
+    // ============ ACCOUNT HISTORY ============
+
+    @Query(value = "SELECT e FROM AccountLedgerEntry e " +
+            "JOIN FETCH e.transaction t " +
+            "LEFT JOIN FETCH t.sourceAccount " +
+            "LEFT JOIN FETCH t.destinationAccount " +
+            "WHERE e.account.id = :accountId " +
+            "ORDER BY e.createdAt DESC, e.id DESC",
+            countQuery = "SELECT COUNT(e) FROM AccountLedgerEntry e WHERE e.account.id = :accountId")
+    Page<AccountLedgerEntry> findByAccountId(@Param("accountId") Long accountId, Pageable pageable);
+
+    // Keyset paging over (createdAt, id); the Pageable is only a row limit
+    @Query("SELECT e FROM AccountLedgerEntry e " +
+            "JOIN FETCH e.transaction t " +
+            "LEFT JOIN FETCH t.sourceAccount " +
+            "LEFT JOIN FETCH t.destinationAccount " +
+            "WHERE e.account.id = :accountId " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<AccountLedgerEntry> findFirstByAccountIdKeyset(@Param("accountId") Long accountId, Pageable limit);
+
+    @Query("SELECT e FROM AccountLedgerEntry e " +
+            "JOIN FETCH e.transaction t " +
+            "LEFT JOIN FETCH t.sourceAccount " +
+            "LEFT JOIN FETCH t.destinationAccount " +
+            "WHERE e.account.id = :accountId " +
+            "AND (e.createdAt < :createdAt OR (e.createdAt = :createdAt AND e.id < :id)) " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<AccountLedgerEntry> findNextByAccountIdKeyset(@Param("accountId") Long accountId,
+                                                       @Param("createdAt") LocalDateTime createdAt,
+                                                       @Param("id") Long id,
+                                                       Pageable limit);
+
+    @Query("SELECT COUNT(e) FROM AccountLedgerEntry e WHERE e.account.id = :accountId")
+    long countByAccountId(@Param("accountId") Long accountId);
+
+    // ============ STATEMENTS ============
+
+    // Oldest first, in fetch-size chunks, for streaming a statement period [from, to)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STATEMENT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM AccountLedgerEntry e " +
+            "JOIN FETCH e.transaction t " +
+            "WHERE e.account.id = :accountId AND e.createdAt >= :from AND e.createdAt < :to " +
+            "ORDER BY e.createdAt, e.id")
+    Stream<AccountLedgerEntry> streamForStatement(@Param("accountId") Long accountId,
+                                                  @Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to);
+
+    // Credits minus debits posted to the account in [from, to)
+    @Query("SELECT COALESCE(SUM(CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END), 0) " +
+            "FROM AccountLedgerEntry e " +
+            "WHERE e.account.id = :accountId AND e.createdAt >= :from AND e.createdAt < :to")
+    BigDecimal netChangeBetween(@Param("accountId") Long accountId,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to);
+
+    // The balance at `at`, worked back from the live balance in a single snapshot
+    @Query(value = "SELECT a.balance - COALESCE((" +
+            "SELECT SUM(CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END) " +
+            "FROM account_ledger_entries e " +
+            "WHERE e.account_id = a.id AND e.created_at >= :at), 0) " +
+            "FROM accounts a WHERE a.id = :accountId",
+            nativeQuery = true)
+    BigDecimal balanceAt(@Param("accountId") Long accountId, @Param("at") LocalDateTime at);
+
+    // Every leg of every transaction touching the user's accounts, before they are cascade-deleted
+    @Modifying
+    @Query("DELETE FROM AccountLedgerEntry e WHERE e.transaction.id IN (" +
+            "SELECT t.id FROM Transaction t LEFT JOIN t.sourceAccount sa LEFT JOIN t.destinationAccount da " +
+            "WHERE sa.user.id = :userId OR da.user.id = :userId)")
+    int deleteByTransactionsOfUserId(@Param("userId") Long userId);
+
+    // ============ USER QUERIES ============
+
+    // Both legs of a transfer between the user's own accounts come back; callers dedupe
+    @Query("SELECT e FROM AccountLedgerEntry e " +
+            "JOIN FETCH e.transaction t " +
+            "LEFT JOIN FETCH t.sourceAccount " +
+            "LEFT JOIN FETCH t.destinationAccount " +
+            "WHERE e.userId = :userId " +
+            "ORDER BY e.createdAt DESC, e.id DESC")
+    List<AccountLedgerEntry> findRecentByUserId(@Param("userId") Long userId, Pageable limit);
+
+    @Query("SELECT COUNT(DISTINCT e.transaction.id) FROM AccountLedgerEntry e WHERE e.userId = :userId")
+    long countTransactionsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM AccountLedgerEntry e " +
+            "WHERE e.userId = :userId AND e.transactionType = :type " +
+            "AND e.direction = :direction AND e.createdAt >= :since")
+    BigDecimal sumByUserIdSince(@Param("userId") Long userId,
+                                @Param("type") Transaction.TransactionType type,
+                                @Param("direction") AccountLedgerEntry.Direction direction,
+                                @Param("since") LocalDateTime since);
+
+    // ============ DASHBOARD ============
+
+    // Every dashboard scalar in one round trip: active-account totals and one pass over
+    // the user's ledger entries for the transaction count and this month's flows
+    @Query(value = "WITH active_accounts AS (" +
+            "SELECT COALESCE(SUM(a.balance), 0) AS total_balance, COUNT(*) AS total_accounts " +
+            "FROM accounts a WHERE a.user_id = :userId AND a.status = 'ACTIVE'), " +
+            "ledger AS (" +
+            "SELECT COUNT(DISTINCT e.transaction_id) AS total_transactions, " +
+            "COALESCE(SUM(CASE WHEN e.transaction_type = 'DEPOSIT' AND e.direction = 'CREDIT' " +
+            "AND e.created_at >= :since THEN e.amount END), 0) AS monthly_income, " +
+            "COALESCE(SUM(CASE WHEN e.transaction_type = 'WITHDRAWAL' AND e.direction = 'DEBIT' " +
+            "AND e.created_at >= :since THEN e.amount END), 0) AS monthly_expenses " +
+            "FROM account_ledger_entries e WHERE e.user_id = :userId) " +
+            "SELECT aa.total_balance AS totalBalance, aa.total_accounts AS totalAccounts, " +
+            "l.total_transactions AS totalTransactions, l.monthly_income AS monthlyIncome, " +
+            "l.monthly_expenses AS monthlyExpenses " +
+            "FROM active_accounts aa CROSS JOIN ledger l",
+            nativeQuery = true)
+    DashboardTotalsProjection getDashboardTotals(@Param("userId") Long userId,
+                                                 @Param("since") LocalDateTime since);
+}
@@ -1,17 +1,22 @@
 package com.kmbank.repository;
 
+import com.kmbank.dto.AccountRecipientProjection;
 import com.kmbank.dto.AccountTypeStatProjection;
+import com.kmbank.dto.BalanceUpdateProjection;
 import com.kmbank.entity.Account;
 import com.kmbank.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +28,37 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAccountNumber(String accountNumber);
     boolean existsByAccountNumber(String accountNumber);
 
+    // Row lock for balance mutations (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT a.id FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<Long> findIdByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    // Resolves many destination account numbers in one IN query (batch transfers)
+    @Query("SELECT a.id AS id, a.accountNumber AS accountNumber, " +
+            "CONCAT(u.firstName, ' ', u.lastName) AS ownerName " +
+            "FROM Account a JOIN a.user u WHERE a.accountNumber IN :accountNumbers")
+    List<AccountRecipientProjection> findRecipientsByAccountNumberIn(
+            @Param("accountNumbers") Collection<String> accountNumbers);
+
+    // Applies a balance delta in a single conditional statement. Returns empty when the
+    // account doesn't exist, isn't owned by the user, isn't active or would go negative.
+    // Also bumps the version so optimistic-mode transfers see the change.
+    @Query(value = "UPDATE accounts " +
+            "SET balance = balance + :delta, version = version + 1, updated_at = now() " +
+            "WHERE id = :id AND user_id = :userId AND status = 'ACTIVE' AND balance + :delta >= 0 " +
+            "RETURNING balance AS balance, account_number AS accountNumber",
+            nativeQuery = true)
+    Optional<BalanceUpdateProjection> applyBalanceDelta(@Param("id") Long id,
+                                                        @Param("userId") Long userId,
+                                                        @Param("delta") BigDecimal delta);
+
     @Query("SELECT COALESCE(SUM(a.balance), 0) FROM Account a WHERE a.user.id = :userId AND a.status = 'ACTIVE'")
     BigDecimal getTotalBalanceByUserId(@Param("userId") Long userId);
 
@@ -35,6 +71,13 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     @Query("SELECT COALESCE(SUM(a.balance), 0) FROM Account a WHERE a.status = 'ACTIVE'")
     BigDecimal getSystemTotalBalance();
 
+    // Bounds of the id space, for splitting whole-table jobs into id-range chunks
+    @Query("SELECT MIN(a.id) FROM Account a")
+    Long findMinId();
+
+    @Query("SELECT MAX(a.id) FROM Account a")
+    Long findMaxId();
+
     long countByCreatedAtAfter(LocalDateTime dateTime);
 
     // ✅ Fixed: Using interface projection with native query
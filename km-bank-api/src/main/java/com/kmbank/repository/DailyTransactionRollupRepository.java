@@ -0,0 +1,54 @@
+package com.kmbank.repository;
+
+import com.kmbank.entity.DailyTransactionRollup;
+import com.kmbank.entity.TransactionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyTransactionRollupRepository extends JpaRepository<DailyTransactionRollup, TransactionRollup.Key> {
+
+    List<DailyTransactionRollup> findByBucketStartGreaterThanEqualOrderByBucketStart(LocalDateTime from);
+
+    // Adds a posting delta to one shard row; 0 when the row doesn't exist yet
+    @Modifying
+    @Query("UPDATE DailyTransactionRollup r SET " +
+            "r.depositCount = r.depositCount + :depositCount, r.depositTotal = r.depositTotal + :depositTotal, " +
+            "r.withdrawalCount = r.withdrawalCount + :withdrawalCount, " +
+            "r.withdrawalTotal = r.withdrawalTotal + :withdrawalTotal, " +
+            "r.transferCount = r.transferCount + :transferCount, r.transferTotal = r.transferTotal + :transferTotal " +
+            "WHERE r.bucketStart = :bucketStart AND r.shard = :shard")
+    int addDelta(@Param("bucketStart") LocalDateTime bucketStart,
+                 @Param("shard") int shard,
+                 @Param("depositCount") long depositCount,
+                 @Param("depositTotal") BigDecimal depositTotal,
+                 @Param("withdrawalCount") long withdrawalCount,
+                 @Param("withdrawalTotal") BigDecimal withdrawalTotal,
+                 @Param("transferCount") long transferCount,
+                 @Param("transferTotal") BigDecimal transferTotal);
+
+    @Modifying
+    @Query(value = "INSERT INTO transaction_rollups_daily (bucket_start, shard, deposit_count, deposit_total, " +
+            "withdrawal_count, withdrawal_total, transfer_count, transfer_total) " +
+            "VALUES (:bucketStart, :shard, 0, 0, 0, 0, 0, 0) " +
+            "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("bucketStart") LocalDateTime bucketStart, @Param("shard") int shard);
+
+    // Row-locks every shard of a day, in shard order like the posting path
+    @Query(value = "SELECT shard FROM transaction_rollups_daily WHERE bucket_start = :bucketStart " +
+            "ORDER BY shard FOR UPDATE",
+            nativeQuery = true)
+    List<Integer> lockShards(@Param("bucketStart") LocalDateTime bucketStart);
+
+    @Modifying
+    @Query("DELETE FROM DailyTransactionRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    void deleteBuckets(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
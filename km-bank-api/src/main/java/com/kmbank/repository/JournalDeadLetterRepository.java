@@ -0,0 +1,18 @@
+package com.kmbank.repository;
+
+import com.kmbank.entity.JournalDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface JournalDeadLetterRepository extends JpaRepository<JournalDeadLetter, Long> {
+
+    // Which of these postings were already parked (journal replay)
+    @Query("SELECT d.referenceNumber FROM JournalDeadLetter d WHERE d.referenceNumber IN :referenceNumbers")
+    List<String> findExistingReferenceNumbers(@Param("referenceNumbers") Collection<String> referenceNumbers);
+}
@@ -1,54 +1,55 @@
 package com.kmbank.repository;
 
+import com.kmbank.dto.HourlyTypeTotalProjection;
 import com.kmbank.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    int EXPORT_FETCH_SIZE = 1000;
+
     // ============ BASIC QUERIES ============
 
     // Find by reference number
+    @EntityGraph(attributePaths = {"sourceAccount", "destinationAccount"})
     Optional<Transaction> findByReferenceNumber(String referenceNumber);
 
-    // Get transactions by account (source or destination)
-    @Query("SELECT t FROM Transaction t " +
-            "LEFT JOIN t.sourceAccount sa " +
-            "LEFT JOIN t.destinationAccount da " +
-            "WHERE sa.id = :accountId OR da.id = :accountId " +
-            "ORDER BY t.createdAt DESC")
-    Page<Transaction> findByAccountId(@Param("accountId") Long accountId, Pageable pageable);
+    // Which of these postings are already in the database (journal replay)
+    @Query("SELECT t.referenceNumber FROM Transaction t WHERE t.referenceNumber IN :referenceNumbers")
+    List<String> findExistingReferenceNumbers(@Param("referenceNumbers") Collection<String> referenceNumbers);
+
+    // Admin views show both account numbers and owner names, so fetch them in the same query
+    @Override
+    @EntityGraph(attributePaths = {"sourceAccount.user", "destinationAccount.user"})
+    Optional<Transaction> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"sourceAccount.user", "destinationAccount.user"})
+    Page<Transaction> findAll(Pageable pageable);
 
     // Find by transaction type
+    @EntityGraph(attributePaths = {"sourceAccount.user", "destinationAccount.user"})
     Page<Transaction> findByTransactionType(Transaction.TransactionType type, Pageable pageable);
 
     // ============ USER-BASED QUERIES ============
 
-    // Get recent transactions for a user
-    @Query("SELECT t FROM Transaction t " +
-            "LEFT JOIN t.sourceAccount sa " +
-            "LEFT JOIN t.destinationAccount da " +
-            "WHERE sa.user.id = :userId OR da.user.id = :userId " +
-            "ORDER BY t.createdAt DESC")
-    List<Transaction> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
-
-    // Count transactions for user
-    @Query("SELECT COUNT(t) FROM Transaction t " +
-            "LEFT JOIN t.sourceAccount sa " +
-            "LEFT JOIN t.destinationAccount da " +
-            "WHERE sa.user.id = :userId OR da.user.id = :userId")
-    long countByUserId(@Param("userId") Long userId);
-
     // Count by created at after
     long countByCreatedAtAfter(LocalDateTime dateTime);
 
@@ -86,16 +87,34 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             "WHERE sa.user.id = :userId AND t.transactionType = 'WITHDRAWAL' AND t.createdAt >= :since")
     BigDecimal getTotalWithdrawalsByUserIdSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
 
+    // ============ EXPORT ============
+
+    // Forward-only cursor in id order for the admin export; owners are fetched in the
+    // same row so writing a line never triggers another query. Null filters are ignored.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t " +
+            "LEFT JOIN FETCH t.sourceAccount sa LEFT JOIN FETCH sa.user " +
+            "LEFT JOIN FETCH t.destinationAccount da LEFT JOIN FETCH da.user " +
+            "WHERE (:type IS NULL OR t.transactionType = :type) " +
+            "AND (:from IS NULL OR t.createdAt >= :from) " +
+            "AND (:to IS NULL OR t.createdAt < :to) " +
+            "AND (:accountId IS NULL OR sa.id = :accountId OR da.id = :accountId) " +
+            "ORDER BY t.id")
+    Stream<Transaction> streamForExport(@Param("type") Transaction.TransactionType type,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        @Param("accountId") Long accountId);
+
     // ============ ANALYTICS QUERIES ============
 
-    // Get daily stats - returns list of Object arrays [date, deposits, withdrawals, count]
-    @Query("SELECT CAST(t.createdAt AS date) as date, " +
-            "SUM(CASE WHEN t.transactionType = 'DEPOSIT' THEN t.amount ELSE 0 END) as deposits, " +
-            "SUM(CASE WHEN t.transactionType = 'WITHDRAWAL' THEN t.amount ELSE 0 END) as withdrawals, " +
-            "COUNT(t) as count " +
+    // Per-type totals for each hour of [from, to), for rebuilding the rollup tables
+    @Query("SELECT EXTRACT(HOUR FROM t.createdAt) AS bucketHour, t.transactionType AS transactionType, " +
+            "COUNT(t) AS transactionCount, COALESCE(SUM(t.amount), 0) AS totalAmount " +
             "FROM Transaction t " +
-            "WHERE t.createdAt >= :startDate " +
-            "GROUP BY CAST(t.createdAt AS date) " +
-            "ORDER BY date")
-    List<Object[]> getDailyStats(@Param("startDate") LocalDateTime startDate);
-}
\ No newline at end of file
+            "WHERE t.createdAt >= :from AND t.createdAt < :to " +
+            "GROUP BY EXTRACT(HOUR FROM t.createdAt), t.transactionType")
+    List<HourlyTypeTotalProjection> getHourlyTotals(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
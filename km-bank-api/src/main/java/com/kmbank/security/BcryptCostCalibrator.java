@@ -0,0 +1,37 @@
+package com.kmbank.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+// Picks the highest BCrypt cost whose hash time on this host stays within a target.
+// Each cost step doubles the work, so one timed sample at the floor is enough to
+// extrapolate the rest.
+@Slf4j
+public final class BcryptCostCalibrator {
+
+    private static final int SAMPLES = 3;
+
+    private BcryptCostCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minCost, int maxCost) {
+        String salt = BCrypt.gensalt(minCost);
+        BCrypt.hashpw("warm-up", salt);
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double millisAtMin = best / 1_000_000.0;
+        int cost = minCost;
+        while (cost < maxCost && millisAtMin * (1L << (cost + 1 - minCost)) <= targetMillis) {
+            cost++;
+        }
+        log.info("BCrypt calibration: {} ms at cost {}, using cost {} for a {} ms target",
+                String.format("%.1f", millisAtMin), minCost, cost, targetMillis);
+        return cost;
+    }
+}
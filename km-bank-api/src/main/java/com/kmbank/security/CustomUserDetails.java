@@ -13,9 +13,16 @@ import java.util.Collections;
 public class CustomUserDetails implements UserDetails {
 
     private final User user;
+    // True when built from token claims only: the user carries id, email, role and status
+    private final boolean claimsOnly;
 
     public  CustomUserDetails(User user){
+        this(user, false);
+    }
+
+    public CustomUserDetails(User user, boolean claimsOnly) {
         this.user = user;
+        this.claimsOnly = claimsOnly;
     }
 
     @Override
@@ -0,0 +1,210 @@
+package com.kmbank.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmbank.dto.DTOs.ApiResponse;
+import com.kmbank.entity.IdempotencyRecord;
+import com.kmbank.exception.Exceptions;
+import com.kmbank.service.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+// Replays the stored response for a repeated Idempotency-Key on money-moving POSTs,
+// so client retries never post twice and never reach the account tables. The key is
+// claimed in the database before the request runs; a retry that arrives while the
+// first request is still running gets 409 on whichever node it lands, and so does one
+// whose first request posted but never stored its response.
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> IDEMPOTENT_PATHS = Set.of(
+            "/transactions/deposit",
+            "/transactions/withdraw",
+            "/transactions/transfer",
+            "/transactions/transfers/batch"
+    );
+
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !IDEMPOTENT_PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails userDetails)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Invalid Idempotency-Key header");
+            return;
+        }
+
+        Long userId = userDetails.getUser().getId();
+        String path = request.getServletPath();
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        String requestHash = sha256(body);
+
+        IdempotencyService.Claim claim;
+        try {
+            claim = idempotencyService.claim(userId, key, path, requestHash);
+        } catch (Exceptions.ConcurrentUpdateException e) {
+            writeError(response, HttpStatus.CONFLICT, e.getMessage());
+            return;
+        }
+        if (!claim.claimed()) {
+            respondWithExisting(claim.record(), path, requestHash, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        // Once the request has succeeded the claim is never released: a retry must not
+        // post again even if storing the response fails
+        boolean succeeded = false;
+        idempotencyService.bind(claim.record());
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), responseWrapper);
+
+            int status = responseWrapper.getStatus();
+            if (status >= 200 && status < 300) {
+                succeeded = true;
+                idempotencyService.complete(claim.record(), status,
+                        new String(responseWrapper.getContentAsByteArray(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            idempotencyService.unbind();
+            if (!succeeded) {
+                idempotencyService.release(claim.record());
+            }
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private void respondWithExisting(IdempotencyRecord record, String path, String requestHash,
+                                     HttpServletResponse response) throws IOException {
+        if (!record.getRequestPath().equals(path) || !record.getRequestHash().equals(requestHash)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used with a different request");
+            return;
+        }
+        if (record.getStatus() == IdempotencyRecord.Status.PENDING) {
+            writeError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is already in progress");
+            return;
+        }
+        if (record.getStatus() == IdempotencyRecord.Status.POSTED) {
+            writeError(response, HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key was already posted, check the transaction history");
+            return;
+        }
+        response.setStatus(record.getResponseStatus());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (record.getResponseBody() != null) {
+            response.getWriter().write(record.getResponseBody());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getWriter(), ApiResponse.error(message));
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // The body is read once up front for hashing; downstream gets a fresh copy
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.kmbank.security;
 
+import com.kmbank.entity.User;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,6 +24,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomerUserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+
+    // When on, principals are built from verified token claims with no user lookup
+    @Value("${security.jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(
@@ -40,11 +49,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            userEmail = jwtUtil.extractUsername(jwt);
+            Claims claims = jwtUtil.extractAllClaims(jwt);
+            userEmail = claims.getSubject();
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = statelessPrincipal && hasPrincipalClaims(claims)
+                        ? fromClaims(claims)
+                        : principalCache.get(userEmail, userDetailsService::loadUserByUsername);
 
-                if (jwtUtil.validateToken(jwt, userDetails)){
+                if (userDetails != null && jwtUtil.validateClaims(claims, userDetails)){
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -59,4 +71,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    // Tokens from before this node started (or without principal claims) use the lookup path
+    private boolean hasPrincipalClaims(Claims claims) {
+        return claims.get(JwtUtil.USER_ID_CLAIM) != null
+                && claims.get(JwtUtil.TOKEN_VERSION_CLAIM) != null
+                && !tokenRevocationRegistry.issuedBeforeStartup(claims.getIssuedAt());
+    }
+
+    // Returns null for revoked or disabled principals, leaving the request unauthenticated
+    private CustomUserDetails fromClaims(@NonNull Claims claims) {
+        Long userId = claims.get(JwtUtil.USER_ID_CLAIM, Long.class);
+        Long tokenVersion = claims.get(JwtUtil.TOKEN_VERSION_CLAIM, Long.class);
+        if (!tokenRevocationRegistry.isCurrent(userId, tokenVersion)
+                || !Boolean.TRUE.equals(claims.get(JwtUtil.ENABLED_CLAIM, Boolean.class))) {
+            return null;
+        }
+        User user = User.builder()
+                .id(userId)
+                .email(claims.getSubject())
+                .role(User.Role.valueOf(claims.get(JwtUtil.ROLE_CLAIM, String.class)))
+                .enabled(true)
+                .build();
+        return new CustomUserDetails(user, true);
+    }
 }
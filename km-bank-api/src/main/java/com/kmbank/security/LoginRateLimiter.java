@@ -0,0 +1,50 @@
+package com.kmbank.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kmbank.exception.Exceptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fixed-window login attempt limits per client IP and per email. Windows start at the
+// first attempt and are held in bounded in-memory caches, so limits are per node.
+@Component
+public class LoginRateLimiter {
+
+    private final Cache<String, AtomicInteger> attemptsByIp;
+    private final Cache<String, AtomicInteger> attemptsByEmail;
+    private final int maxPerIp;
+    private final int maxPerEmail;
+
+    public LoginRateLimiter(
+            @Value("${auth.rate-limit.per-ip:30}") int maxPerIp,
+            @Value("${auth.rate-limit.per-email:10}") int maxPerEmail,
+            @Value("${auth.rate-limit.window-seconds:60}") long windowSeconds,
+            @Value("${auth.rate-limit.max-tracked:100000}") long maxTracked) {
+        this.maxPerIp = maxPerIp;
+        this.maxPerEmail = maxPerEmail;
+        this.attemptsByIp = window(windowSeconds, maxTracked);
+        this.attemptsByEmail = window(windowSeconds, maxTracked);
+    }
+
+    // Counts the attempt against both keys and throws once either is over its limit
+    public void acquire(String clientIp, String email) {
+        int byIp = attemptsByIp.get(clientIp, k -> new AtomicInteger()).incrementAndGet();
+        int byEmail = attemptsByEmail.get(email.toLowerCase(Locale.ROOT), k -> new AtomicInteger())
+                .incrementAndGet();
+        if (byIp > maxPerIp || byEmail > maxPerEmail) {
+            throw new Exceptions.TooManyRequestsException("Too many login attempts, please try again later");
+        }
+    }
+
+    private static Cache<String, AtomicInteger> window(long windowSeconds, long maxTracked) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .maximumSize(maxTracked)
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.kmbank.security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-user token versions for stateless principals. Tokens carry the version they
+// were issued with; disabling a user or changing their role bumps it, so older
+// tokens stop authenticating. Versions live in memory only: tokens issued before
+// this node started cannot be checked here and must be resolved from the database.
+@Component
+public class TokenRevocationRegistry {
+
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    // JWT iat has second precision
+    private final long startedAtSeconds = System.currentTimeMillis() / 1000;
+
+    public long currentVersion(Long userId) {
+        return versions.getOrDefault(userId, 0L);
+    }
+
+    public void revoke(Long userId) {
+        versions.merge(userId, 1L, Long::sum);
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return tokenVersion == currentVersion(userId);
+    }
+
+    public boolean issuedBeforeStartup(Date issuedAt) {
+        return issuedAt == null || issuedAt.getTime() / 1000 < startedAtSeconds;
+    }
+}
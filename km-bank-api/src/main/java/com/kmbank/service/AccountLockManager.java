@@ -0,0 +1,78 @@
+package com.kmbank.service;
+
+import com.kmbank.exception.Exceptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Striped per-account locks for balance mutations. Accounts hash onto a fixed
+// set of stripes, so unrelated accounts never wait on each other. Multi-account
+// operations always take their stripes in ascending stripe order, which keeps
+// two opposite transfers (A -> B, B -> A) from deadlocking.
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long lockTimeoutMs;
+
+    public AccountLockManager(
+            @Value("${transactions.lock-stripes:1024}") int stripeCount,
+            @Value("${transactions.lock-timeout-ms:5000}") long lockTimeoutMs) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    public <T> T withLock(Long accountId, Supplier<T> action) {
+        return withLocks(List.of(accountId), action);
+    }
+
+    public <T> T withLocks(Collection<Long> accountIds, Supplier<T> action) {
+        int[] order = accountIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        try {
+            for (int stripe : order) {
+                if (!stripes[stripe].tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new Exceptions.ConcurrentUpdateException(
+                            "Account is busy, please retry the transaction");
+                }
+                acquired++;
+            }
+            return action.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exceptions.ConcurrentUpdateException("Interrupted while waiting for account lock");
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    int stripeOf(Long accountId) {
+        // Spread the id bits so sequential ids don't cluster on neighbouring stripes
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -19,6 +19,8 @@ public class AccountService {
 
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    private final DashboardCache dashboardCache;
+    private final SystemCounters systemCounters;
 
     public List<AccountResponse> getAccountsByUserId(Long userId) {
         return accountRepository.findByUserId(userId).stream()
@@ -57,6 +59,8 @@ public class AccountService {
                 .build();
 
         account = accountRepository.save(account);
+        dashboardCache.evict(userId);
+        systemCounters.accountOpened(account.getBalance());
 
         return AccountResponse.fromEntity(account);
     }
@@ -71,6 +75,7 @@ public class AccountService {
         }
         account.setAccountName(newName);
         account = accountRepository.save(account);
+        dashboardCache.evict(userId);
 
         return  AccountResponse.fromEntity(account);
     }
@@ -90,5 +95,6 @@ public class AccountService {
 
         account.setStatus(Account.AccountStatus.CLOSED);
         accountRepository.save(account);
+        dashboardCache.evict(userId);
     }
 }
@@ -3,12 +3,19 @@ package com.kmbank.service;
 import com.kmbank.dto.AccountTypeStatProjection;
 import com.kmbank.dto.DTOs.*;
 import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
 import com.kmbank.entity.Transaction;
+import com.kmbank.entity.TransactionRollup;
 import com.kmbank.entity.User;
 import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.AccountBalanceCheckpointRepository;
+import com.kmbank.repository.AccountBalanceSnapshotRepository;
+import com.kmbank.repository.AccountLedgerEntryRepository;
 import com.kmbank.repository.AccountRepository;
 import com.kmbank.repository.TransactionRepository;
 import com.kmbank.repository.UserRepository;
+import com.kmbank.security.PrincipalCache;
+import com.kmbank.security.TokenRevocationRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -18,8 +25,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,51 +39,58 @@ public class AdminService {
     private final UserRepository userRepository;
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final AccountLedgerEntryRepository accountLedgerEntryRepository;
+    private final AccountBalanceCheckpointRepository accountBalanceCheckpointRepository;
+    private final AccountBalanceSnapshotRepository accountBalanceSnapshotRepository;
+    private final PrincipalCache principalCache;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final DashboardCache dashboardCache;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+    private final ParallelQueryExecutor parallelQueryExecutor;
+    private final SystemCounters systemCounters;
+    private final TransactionRollupService transactionRollupService;
+    private final WriteBehindPostingService writeBehindPostingService;
 
     // ============== DASHBOARD STATS ==============
 
+    // System totals come from the in-memory counters; the remaining queries are
+    // independent, so they run concurrently and the response waits for the slowest
     public AdminDashboardResponse getAdminDashboard() {
-        long totalUsers = userRepository.count();
-        long totalAccounts = accountRepository.count();
-        long totalTransactions = transactionRepository.count();
-
-        BigDecimal totalDeposits = transactionRepository.getTotalByType(Transaction.TransactionType.DEPOSIT);
-        BigDecimal totalWithdrawals = transactionRepository.getTotalByType(Transaction.TransactionType.WITHDRAWAL);
-        BigDecimal totalTransfers = transactionRepository.getTotalByType(Transaction.TransactionType.TRANSFER);
-        BigDecimal systemBalance = accountRepository.getSystemTotalBalance();
+        LocalDateTime last24Hours = LocalDateTime.now().minusHours(24);
+        Pageable top10 = PageRequest.of(0, 10, Sort.by("createdAt").descending());
 
         // Get recent activity
-        LocalDateTime last24Hours = LocalDateTime.now().minusHours(24);
-        long newUsersToday = userRepository.countByCreatedAtAfter(last24Hours);
-        long transactionsToday = transactionRepository.countByCreatedAtAfter(last24Hours);
+        Supplier<Long> newUsersToday = parallelQueryExecutor.fork(
+                () -> userRepository.countByCreatedAtAfter(last24Hours));
+        Supplier<Long> transactionsToday = parallelQueryExecutor.fork(
+                () -> transactionRepository.countByCreatedAtAfter(last24Hours));
 
         // Get recent users and transactions
-        List<UserResponse> recentUsers = userRepository.findTop10ByOrderByCreatedAtDesc()
-                .stream()
-                .map(UserResponse::fromEntity)
-                .collect(Collectors.toList());
-
-        // FIXED: Use the correct method that returns List<Transaction>
-        Pageable top10 = PageRequest.of(0, 10, Sort.by("createdAt").descending());
-        List<AdminTransactionResponse> recentTransactions = transactionRepository
-                .findAll(top10)
-                .getContent()
-                .stream()
-                .map(AdminTransactionResponse::fromEntity)
-                .collect(Collectors.toList());
+        Supplier<List<UserResponse>> recentUsers = parallelQueryExecutor.fork(
+                () -> userRepository.findTop10ByOrderByCreatedAtDesc()
+                        .stream()
+                        .map(UserResponse::fromEntity)
+                        .collect(Collectors.toList()));
+
+        Supplier<List<AdminTransactionResponse>> recentTransactions = parallelQueryExecutor.fork(
+                () -> transactionRepository.findAll(top10)
+                        .getContent()
+                        .stream()
+                        .map(AdminTransactionResponse::fromEntity)
+                        .collect(Collectors.toList()));
 
         return AdminDashboardResponse.builder()
-                .totalUsers(totalUsers)
-                .totalAccounts(totalAccounts)
-                .totalTransactions(totalTransactions)
-                .totalDeposits(totalDeposits != null ? totalDeposits : BigDecimal.ZERO)
-                .totalWithdrawals(totalWithdrawals != null ? totalWithdrawals : BigDecimal.ZERO)
-                .totalTransfers(totalTransfers != null ? totalTransfers : BigDecimal.ZERO)
-                .systemBalance(systemBalance != null ? systemBalance : BigDecimal.ZERO)
-                .newUsersToday(newUsersToday)
-                .transactionsToday(transactionsToday)
-                .recentUsers(recentUsers)
-                .recentTransactions(recentTransactions)
+                .totalUsers(systemCounters.getUsers())
+                .totalAccounts(systemCounters.getAccounts())
+                .totalTransactions(systemCounters.getTransactions())
+                .totalDeposits(systemCounters.getTotalByType(Transaction.TransactionType.DEPOSIT))
+                .totalWithdrawals(systemCounters.getTotalByType(Transaction.TransactionType.WITHDRAWAL))
+                .totalTransfers(systemCounters.getTotalByType(Transaction.TransactionType.TRANSFER))
+                .systemBalance(systemCounters.getSystemBalance())
+                .newUsersToday(newUsersToday.get())
+                .transactionsToday(transactionsToday.get())
+                .recentUsers(recentUsers.get())
+                .recentTransactions(recentTransactions.get())
                 .build();
     }
 
@@ -102,7 +119,7 @@ public class AdminService {
                 .collect(Collectors.toList());
 
         BigDecimal totalBalance = accountRepository.getTotalBalanceByUserId(userId);
-        long transactionCount = transactionRepository.countByUserId(userId);
+        long transactionCount = accountLedgerEntryRepository.countTransactionsByUserId(userId);
 
         return UserDetailResponse.builder()
                 .user(UserResponse.fromEntity(user))
@@ -119,6 +136,8 @@ public class AdminService {
 
         user.setEnabled(!user.getEnabled());
         user = userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
+        tokenRevocationRegistry.revoke(userId);
 
         return UserResponse.fromEntity(user);
     }
@@ -130,6 +149,8 @@ public class AdminService {
 
         user.setRole(newRole);
         user = userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
+        tokenRevocationRegistry.revoke(userId);
 
         return UserResponse.fromEntity(user);
     }
@@ -144,8 +165,21 @@ public class AdminService {
         if (totalBalance != null && totalBalance.compareTo(BigDecimal.ZERO) > 0) {
             throw new Exceptions.BadRequestException("Cannot delete user with remaining balance");
         }
+        // A journaled deposit still on its way would land on a deleted account
+        if (writeBehindPostingService.hasUnappliedDeposits(userId)) {
+            throw new Exceptions.BadRequestException("Cannot delete user while deposits are still being posted");
+        }
 
+        // Ledger legs and checkpoints reference the rows the cascade below removes
+        accountLedgerEntryRepository.deleteByTransactionsOfUserId(userId);
+        accountBalanceCheckpointRepository.deleteByUserId(userId);
+        accountBalanceSnapshotRepository.deleteByUserId(userId);
         userRepository.delete(user);
+        // Accounts and their transactions go with the user
+        systemCounters.reconcileAfterCommit();
+        dashboardCache.evict(userId);
+        principalCache.invalidate(user.getEmail());
+        tokenRevocationRegistry.revoke(userId);
     }
 
     // =============== ACCOUNT MANAGEMENT =============
@@ -171,12 +205,10 @@ public class AdminService {
 
         Pageable pageable = PageRequest.of(0, 20);
 
-        // FIXED: Use .getContent() to get List from Page
-        List<TransactionResponse> recentTransactions = transactionRepository
-                .findByAccountId(account.getId(), pageable)
-                .getContent()
+        List<TransactionResponse> recentTransactions = accountLedgerEntryRepository
+                .findFirstByAccountIdKeyset(account.getId(), pageable)
                 .stream()
-                .map(t -> TransactionResponse.fromEntity(t, accountId))
+                .map(TransactionResponse::fromLedgerEntry)
                 .collect(Collectors.toList());
 
         return AdminAccountDetailResponse.builder()
@@ -193,16 +225,24 @@ public class AdminService {
         Account account = accountRepository.findById(accountId)
                 .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Account not found"));
 
+        boolean wasActive = account.getStatus() == Account.AccountStatus.ACTIVE;
         account.setStatus(newStatus);
         account = accountRepository.save(account);
+        if (wasActive != (newStatus == Account.AccountStatus.ACTIVE)) {
+            systemCounters.activeBalanceChanged(wasActive ? account.getBalance().negate() : account.getBalance());
+        }
+        dashboardCache.evict(account.getUser().getId());
 
         return AccountResponse.fromEntity(account);
     }
 
-    @Transactional
     public AccountResponse adjustAccountBalance(Long accountId, BigDecimal adjustment, String reason) {
-        Account account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Account not found"));
+        return balanceMutationExecutor.execute("admin-adjust", accountId,
+                () -> doAdjustAccountBalance(accountId, adjustment, reason));
+    }
+
+    private AccountResponse doAdjustAccountBalance(Long accountId, BigDecimal adjustment, String reason) {
+        Account account = balanceMutationExecutor.loadAccount(accountId, "Account not found");
 
         BigDecimal newBalance = account.getBalance().add(adjustment);
         if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
@@ -223,8 +263,15 @@ public class AdminService {
                 .sourceAccount(adjustment.compareTo(BigDecimal.ZERO) < 0 ? account : null)
                 .balanceAfter(newBalance)
                 .build();
+        transaction.addLedgerEntry(account, account.getUser().getId(), adjustment.compareTo(BigDecimal.ZERO) > 0
+                ? AccountLedgerEntry.Direction.CREDIT
+                : AccountLedgerEntry.Direction.DEBIT, newBalance);
 
         transactionRepository.save(transaction);
+        dashboardCache.evict(account.getUser().getId());
+        systemCounters.posted(transaction.getTransactionType(), adjustment.abs(),
+                account.getStatus() == Account.AccountStatus.ACTIVE ? adjustment : BigDecimal.ZERO);
+        transactionRollupService.record(transaction);
         return AccountResponse.fromEntity(account);
     }
 
@@ -253,9 +300,15 @@ public class AdminService {
 
     // ===================== ANALYTICS =====================
 
+    // Daily series and period totals are read from the rollup tables, one row per
+    // bucket; "day" returns hourly buckets. Buckets are whole hours/days, so the first
+    // one can start before startDate.
     public AnalyticsResponse getAnalytics(String period) {
         LocalDateTime startDate;
         switch (period.toLowerCase()) {
+            case "day":
+                startDate = LocalDateTime.now().minusDays(1);
+                break;
             case "week":
                 startDate = LocalDateTime.now().minusWeeks(1);
                 break;
@@ -269,34 +322,45 @@ public class AdminService {
                 startDate = LocalDateTime.now().minusMonths(1);
         }
 
-        // FIXED: Convert Object[] to DailyStatResponse
-        List<Object[]> rawDailyStats = transactionRepository.getDailyStats(startDate);
-        List<DailyStatResponse> dailyStats = rawDailyStats.stream()
-                .map(row -> DailyStatResponse.builder()
-                        .date(row[0] != null ? row[0].toString() : "")
-                        .deposits(row[1] != null ? new BigDecimal(row[1].toString()) : BigDecimal.ZERO)
-                        .withdrawals(row[2] != null ? new BigDecimal(row[2].toString()) : BigDecimal.ZERO)
-                        .transactionCount(row[3] != null ? ((Number) row[3]).longValue() : 0L)
-                        .build())
-                .collect(Collectors.toList());
+        boolean hourly = "day".equalsIgnoreCase(period);
+        List<? extends TransactionRollup> rollups = hourly
+                ? transactionRollupService.getHourly(startDate)
+                : transactionRollupService.getDaily(startDate);
+
+        BigDecimal totalDeposits = BigDecimal.ZERO;
+        BigDecimal totalWithdrawals = BigDecimal.ZERO;
+        List<DailyStatResponse> dailyStats = new ArrayList<>(rollups.size());
+        for (TransactionRollup rollup : rollups) {
+            dailyStats.add(DailyStatResponse.builder()
+                    .date(hourly ? rollup.getBucketStart().toString() : rollup.getBucketStart().toLocalDate().toString())
+                    .deposits(rollup.getDepositTotal())
+                    .withdrawals(rollup.getWithdrawalTotal())
+                    .transactionCount(rollup.getTransactionCount())
+                    .build());
+            totalDeposits = totalDeposits.add(rollup.getDepositTotal());
+            totalWithdrawals = totalWithdrawals.add(rollup.getWithdrawalTotal());
+        }
 
         List<AccountTypeStatProjection> accountTypeStats = accountRepository.getAccountTypeStats();
 
-        BigDecimal totalDeposits = transactionRepository.getTotalByTypeAndDateAfter(
-                Transaction.TransactionType.DEPOSIT, startDate);
-        BigDecimal totalWithdrawals = transactionRepository.getTotalByTypeAndDateAfter(
-                Transaction.TransactionType.WITHDRAWAL, startDate);
         long newUsers = userRepository.countByCreatedAtAfter(startDate);
         long newAccounts = accountRepository.countByCreatedAtAfter(startDate);
 
         return AnalyticsResponse.builder()
                 .dailyStats(dailyStats)
                 .accountTypeStats(accountTypeStats)
-                .totalDeposits(totalDeposits != null ? totalDeposits : BigDecimal.ZERO)
-                .totalWithdrawals(totalWithdrawals != null ? totalWithdrawals : BigDecimal.ZERO)
+                .totalDeposits(totalDeposits)
+                .totalWithdrawals(totalWithdrawals)
                 .newUsers(newUsers)
                 .newAccounts(newAccounts)
                 .period(period)
                 .build();
     }
-}
\ No newline at end of file
+
+    public void rebuildAnalyticsRollups(LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || to.isAfter(LocalDate.now())) {
+            throw new Exceptions.BadRequestException("Invalid rebuild range");
+        }
+        transactionRollupService.rebuild(from, to);
+    }
+}
@@ -2,29 +2,49 @@ package com.kmbank.service;
 
 import com.kmbank.dto.DTOs.*;
 import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.Transaction;
 import com.kmbank.entity.User;
 import com.kmbank.exception.Exceptions;
 import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.TransactionRepository;
 import com.kmbank.repository.UserRepository;
+import com.kmbank.security.CustomUserDetails;
 import com.kmbank.security.JwtUtil;
+import com.kmbank.security.LoginExecutor;
+import com.kmbank.security.LoginRateLimiter;
+import com.kmbank.security.TokenRevocationRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
+    private static final BigDecimal WELCOME_BONUS = new BigDecimal("1000.00");
+
     private final UserRepository userRepository;
     private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionRollupService transactionRollupService;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final LoginRateLimiter loginRateLimiter;
+    private final LoginExecutor loginExecutor;
+    private final MeterRegistry meterRegistry;
+    private final SystemCounters systemCounters;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
@@ -45,13 +65,28 @@ public class AuthService {
         Account defaultAccount = Account.builder()
                 .accountName("Primary Checking")
                 .accountType(Account.AccountType.CHECKING)
-                .balance(BigDecimal.valueOf(1000.00)) // Welcome bonus
+                .balance(WELCOME_BONUS)
                 .user(user)
                 .build();
+        defaultAccount = accountRepository.save(defaultAccount);
+
+        // The welcome bonus is posted like any deposit, so the ledger sums to the balance
+        Transaction bonus = Transaction.builder()
+                .transactionType(Transaction.TransactionType.DEPOSIT)
+                .amount(WELCOME_BONUS)
+                .description("Welcome bonus")
+                .destinationAccount(defaultAccount)
+                .balanceAfter(WELCOME_BONUS)
+                .build();
+        bonus.addLedgerEntry(defaultAccount, user.getId(), AccountLedgerEntry.Direction.CREDIT, WELCOME_BONUS);
+        bonus = transactionRepository.save(bonus);
 
-        accountRepository.save(defaultAccount);
+        systemCounters.userRegistered();
+        systemCounters.accountOpened(BigDecimal.ZERO);
+        systemCounters.posted(Transaction.TransactionType.DEPOSIT, WELCOME_BONUS, WELCOME_BONUS);
+        transactionRollupService.record(bonus);
 
-        String token = jwtUtil.generateToken(user.getEmail());
+        String token = jwtUtil.generateToken(user, tokenRevocationRegistry.currentVersion(user.getId()));
 
         return AuthResponse.builder()
                 .token(token)
@@ -60,14 +95,27 @@ public class AuthService {
                 .build();
     }
 
-    public AuthResponse login(LoginRequest request) {
-        authenticationManager.authenticate(
+    // Rate limits first, then hashes on the login pool; the request thread is released
+    public CompletableFuture<AuthResponse> login(LoginRequest request, String clientIp) {
+        loginRateLimiter.acquire(clientIp, request.getEmail());
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return loginExecutor.submit(() -> authenticate(request))
+                .whenComplete((response, error) -> sample.stop(Timer.builder("kmbank.auth.login")
+                        .tag("outcome", error == null ? "success" : "failure")
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)));
+    }
+
+    private AuthResponse authenticate(LoginRequest request) {
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
 
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new Exceptions.ResourceNotFoundException("User not found"));
+        // The provider already loaded the user to check the password; reuse it
+        User user = ((CustomUserDetails) authentication.getPrincipal()).getUser();
 
-        String token = jwtUtil.generateToken(user.getEmail());
+        String token = jwtUtil.generateToken(user, tokenRevocationRegistry.currentVersion(user.getId()));
 
         return AuthResponse.builder()
                 .token(token)
@@ -0,0 +1,122 @@
+package com.kmbank.service;
+
+import com.kmbank.entity.Account;
+import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Runs a balance mutation in its own database transaction using the configured
+// concurrency mode:
+//   PESSIMISTIC - stripe locks + SELECT ... FOR UPDATE (safe under heavy contention)
+//   OPTIMISTIC  - plain reads, @Version check on commit, bounded retry with jitter
+@Component
+public class BalanceMutationExecutor {
+
+    public enum Mode {
+        PESSIMISTIC, OPTIMISTIC
+    }
+
+    private final AccountRepository accountRepository;
+    private final AccountLockManager accountLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Mode mode;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+
+    public BalanceMutationExecutor(
+            AccountRepository accountRepository,
+            AccountLockManager accountLockManager,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${transactions.concurrency-mode:pessimistic}") String mode,
+            @Value("${transactions.optimistic.max-attempts:5}") int maxAttempts,
+            @Value("${transactions.optimistic.backoff-base-ms:5}") long backoffBaseMs,
+            @Value("${transactions.optimistic.backoff-max-ms:200}") long backoffMaxMs) {
+        this.accountRepository = accountRepository;
+        this.accountLockManager = accountLockManager;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.mode = Mode.valueOf(mode.toUpperCase());
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+    }
+
+    public <T> T execute(String operation, Long accountId, Supplier<T> mutation) {
+        return execute(operation, List.of(accountId), mutation);
+    }
+
+    public <T> T execute(String operation, Collection<Long> accountIds, Supplier<T> mutation) {
+        if (mode == Mode.PESSIMISTIC) {
+            return accountLockManager.withLocks(accountIds,
+                    () -> transactionTemplate.execute(status -> mutation.get()));
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> mutation.get());
+            } catch (OptimisticLockingFailureException e) {
+                counter("kmbank.balance.conflicts", operation).increment();
+                if (attempt >= maxAttempts) {
+                    counter("kmbank.balance.retries.exhausted", operation).increment();
+                    throw new Exceptions.ConcurrentUpdateException(
+                            "Account was updated concurrently, please retry the transaction");
+                }
+                counter("kmbank.balance.retries", operation).increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    // Loads an account for mutation inside execute(); only row-locks in pessimistic mode
+    public Account loadAccount(Long accountId, String notFoundMessage) {
+        return (mode == Mode.PESSIMISTIC
+                ? accountRepository.findByIdForUpdate(accountId)
+                : accountRepository.findById(accountId))
+                .orElseThrow(() -> new Exceptions.ResourceNotFoundException(notFoundMessage));
+    }
+
+    // Loads several accounts for mutation, in ascending id order, keyed by id
+    public Map<Long, Account> loadAccounts(Collection<Long> accountIds) {
+        List<Account> accounts = mode == Mode.PESSIMISTIC
+                ? accountRepository.findAllByIdForUpdate(accountIds)
+                : accountRepository.findAllById(accountIds);
+        Map<Long, Account> byId = new TreeMap<>();
+        accounts.forEach(account -> byId.put(account.getId(), account));
+        return byId;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt, 20));
+        long sleepMs = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exceptions.ConcurrentUpdateException("Interrupted while retrying the transaction");
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return meterRegistry.counter(name, "operation", operation);
+    }
+}
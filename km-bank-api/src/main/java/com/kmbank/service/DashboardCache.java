@@ -0,0 +1,94 @@
+package com.kmbank.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kmbank.dto.DTOs.DashboardResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+// Per-user dashboard snapshots. Anything that changes a user's balances, accounts or
+// history evicts their entry once its transaction commits; the TTL bounds staleness
+// for what is not evicted explicitly (month rollover, other nodes).
+//
+// Entries are futures, and a miss runs its loader on the calling thread outside any
+// cache lock: concurrent reads of the same user wait for that one load, while
+// evictions from posting transactions and loads for other users never do.
+@Component
+public class DashboardCache {
+
+    private final AsyncCache<Long, DashboardResponse> cache;
+
+    public DashboardCache(
+            MeterRegistry meterRegistry,
+            @Value("${dashboard.cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${dashboard.cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "dashboards");
+    }
+
+    public DashboardResponse get(Long userId, Function<Long, DashboardResponse> loader) {
+        CompletableFuture<DashboardResponse> cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return join(cached);
+        }
+
+        CompletableFuture<DashboardResponse> loading = new CompletableFuture<>();
+        CompletableFuture<DashboardResponse> existing = cache.asMap().putIfAbsent(userId, loading);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            DashboardResponse dashboard = loader.apply(userId);
+            loading.complete(dashboard);
+            return dashboard;
+        } catch (RuntimeException e) {
+            cache.asMap().remove(userId, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Rethrows a failed load the way the loading thread saw it
+    private static DashboardResponse join(CompletableFuture<DashboardResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void evict(Long userId) {
+        evict(List.of(userId));
+    }
+
+    // Evicts now and again after completion, so a read racing the write cannot re-cache old totals
+    public void evict(Collection<Long> userIds) {
+        cache.synchronous().invalidateAll(userIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.synchronous().invalidateAll(userIds);
+                }
+            });
+        }
+    }
+}
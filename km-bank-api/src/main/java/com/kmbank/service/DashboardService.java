@@ -1,15 +1,15 @@
 package com.kmbank.service;
 
 import com.kmbank.dto.DTOs.*;
+import com.kmbank.dto.DashboardTotalsProjection;
+import com.kmbank.repository.AccountLedgerEntryRepository;
 import com.kmbank.repository.AccountRepository;
-import com.kmbank.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,36 +17,38 @@ import java.util.stream.Collectors;
 public class DashboardService {
 
     private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
+    private final AccountLedgerEntryRepository accountLedgerEntryRepository;
+    private final TransactionService transactionService;
+    private final DashboardCache dashboardCache;
+    private final ParallelQueryExecutor parallelQueryExecutor;
 
     public DashboardResponse getDashboard(Long userId) {
-        BigDecimal totalBalance = accountRepository.getTotalBalanceByUserId(userId);
-        long totalAccounts = accountRepository.countActiveAccountsByUserId(userId);
-        long totalTransactions = transactionRepository.countByUserId(userId);
+        return dashboardCache.get(userId, this::loadDashboard);
+    }
 
+    private DashboardResponse loadDashboard(Long userId) {
         LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
 
-        BigDecimal monthlyIncome = transactionRepository.getTotalDepositsByUserIdSince(userId, startOfMonth);
-        BigDecimal monthlyExpenses = transactionRepository.getTotalWithdrawalsByUserIdSince(userId, startOfMonth);
+        Supplier<DashboardTotalsProjection> totals = parallelQueryExecutor.fork(
+                () -> accountLedgerEntryRepository.getDashboardTotals(userId, startOfMonth));
 
-        List<AccountResponse> accounts = accountRepository.findByUserId(userId).stream()
-                .filter(a -> a.getStatus() == com.kmbank.entity.Account.AccountStatus.ACTIVE)
-                .map(AccountResponse::fromEntity)
-                .collect(Collectors.toList());
+        Supplier<List<AccountResponse>> accounts = parallelQueryExecutor.fork(
+                () -> accountRepository.findByUserId(userId).stream()
+                        .filter(a -> a.getStatus() == com.kmbank.entity.Account.AccountStatus.ACTIVE)
+                        .map(AccountResponse::fromEntity)
+                        .collect(Collectors.toList()));
 
-        List<TransactionResponse> recentTransactions = transactionRepository
-                .findRecentByUserId(userId, PageRequest.of(0, 10)).stream()
-                .map(TransactionResponse::fromEntity)
-                .collect(Collectors.toList());
+        Supplier<List<TransactionResponse>> recentTransactions = parallelQueryExecutor.fork(
+                () -> transactionService.getRecentTransactionsByUserId(userId, 10));
 
         return DashboardResponse.builder()
-                .totalBalance(totalBalance != null ? totalBalance : BigDecimal.ZERO)
-                .totalAccounts(totalAccounts)
-                .totalTransactions(totalTransactions)
-                .monthlyIncome(monthlyIncome != null ? monthlyIncome : BigDecimal.ZERO)
-                .monthlyExpenses(monthlyExpenses != null ? monthlyExpenses : BigDecimal.ZERO)
-                .accounts(accounts)
-                .recentTransactions(recentTransactions)
+                .totalBalance(totals.get().getTotalBalance())
+                .totalAccounts(totals.get().getTotalAccounts())
+                .totalTransactions(totals.get().getTotalTransactions())
+                .monthlyIncome(totals.get().getMonthlyIncome())
+                .monthlyExpenses(totals.get().getMonthlyExpenses())
+                .accounts(accounts.get())
+                .recentTransactions(recentTransactions.get())
                 .build();
     }
 }
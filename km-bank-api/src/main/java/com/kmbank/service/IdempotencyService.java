@@ -0,0 +1,165 @@
+package com.kmbank.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kmbank.entity.IdempotencyRecord;
+import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Claims each (user, Idempotency-Key) in the idempotency_records table before the
+// request runs: the insert of a PENDING row under uk_idempotency_user_key decides which
+// request - on any node - gets to post, and the row is completed with the response once
+// it succeeds. Completed responses are also kept in a bounded in-memory TTL cache.
+// A claim lapses after pending-timeout, so a node that died mid-request doesn't lock
+// the key for the whole TTL. The request's posting marks its claim POSTED in the same
+// database transaction, which keeps the key for the whole TTL: a node that dies after
+// the commit but before complete() leaves a claim that is never taken over, and a
+// posting whose claim was taken over in the meantime rolls back. A journaled deposit
+// is marked right after its journal sync instead, so a crash between the two can
+// still let a retry post it again.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    // The record holding the key; claimed is true when this request just took it
+    public record Claim(IdempotencyRecord record, boolean claimed) {
+    }
+
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    // The claim held by the request running on this thread, set by IdempotencyKeyFilter
+    private static final ThreadLocal<IdempotencyRecord> CURRENT_CLAIM = new ThreadLocal<>();
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final Cache<String, IdempotencyRecord> cache;
+    private final Duration ttl;
+    private final Duration pendingTimeout;
+
+    public IdempotencyService(
+            IdempotencyRecordRepository idempotencyRecordRepository,
+            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${idempotency.pending-timeout-seconds:300}") long pendingTimeoutSeconds,
+            @Value("${idempotency.cache-size:10000}") long cacheSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.pendingTimeout = Duration.ofSeconds(pendingTimeoutSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Each insert or delete runs in its own transaction: a unique-key violation must
+    // not poison a surrounding one
+    public Claim claim(Long userId, String key, String requestPath, String requestHash) {
+        IdempotencyRecord cached = cache.getIfPresent(cacheKey(userId, key));
+        if (cached != null) {
+            return new Claim(cached, false);
+        }
+
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            IdempotencyRecord pending = IdempotencyRecord.builder()
+                    .userId(userId)
+                    .idempotencyKey(key)
+                    .requestPath(requestPath)
+                    .requestHash(requestHash)
+                    .status(IdempotencyRecord.Status.PENDING)
+                    .expiresAt(LocalDateTime.now().plus(pendingTimeout))
+                    .build();
+            try {
+                return new Claim(idempotencyRecordRepository.saveAndFlush(pending), true);
+            } catch (DataIntegrityViolationException e) {
+                // Held by another request, or left over and expired
+            }
+
+            Optional<IdempotencyRecord> existing = idempotencyRecordRepository
+                    .findByUserIdAndIdempotencyKey(userId, key);
+            if (existing.isEmpty()) {
+                // Released between the insert and the read
+                continue;
+            }
+            IdempotencyRecord record = existing.get();
+            LocalDateTime now = LocalDateTime.now();
+            if (record.getExpiresAt().isAfter(now)) {
+                if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                    cache.put(cacheKey(userId, key), record);
+                }
+                return new Claim(record, false);
+            }
+            if (record.getStatus() == IdempotencyRecord.Status.PENDING) {
+                log.warn("Idempotency-Key claim {} for user {} lapsed without a response", record.getId(), userId);
+            }
+            idempotencyRecordRepository.deleteIfExpired(record.getId(), now);
+        }
+        throw new Exceptions.ConcurrentUpdateException("A request with this Idempotency-Key is already in progress");
+    }
+
+    public void bind(IdempotencyRecord claim) {
+        CURRENT_CLAIM.set(claim);
+    }
+
+    public void unbind() {
+        CURRENT_CLAIM.remove();
+    }
+
+    // Call from the transaction that posts; joins it. Returns false if the request's
+    // claim lapsed and was taken over, in which case the posting must not commit.
+    // Requests without an Idempotency-Key have nothing to mark.
+    public boolean markPosted() {
+        IdempotencyRecord claim = CURRENT_CLAIM.get();
+        if (claim == null) {
+            return true;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        if (idempotencyRecordRepository.markPosted(claim.getId(), expiresAt) == 0) {
+            log.warn("Idempotency-Key claim {} for user {} was taken over before it posted",
+                    claim.getId(), claim.getUserId());
+            return false;
+        }
+        claim.setStatus(IdempotencyRecord.Status.POSTED);
+        claim.setExpiresAt(expiresAt);
+        return true;
+    }
+
+    // Stores the response on the claim; returns false if the claim had lapsed and was
+    // taken over, in which case the other request's response is the one kept
+    public boolean complete(IdempotencyRecord claim, int status, String body) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        if (idempotencyRecordRepository.complete(claim.getId(), status, body, expiresAt) == 0) {
+            log.warn("Idempotency-Key claim {} for user {} was taken over before it completed",
+                    claim.getId(), claim.getUserId());
+            return false;
+        }
+        claim.setStatus(IdempotencyRecord.Status.COMPLETED);
+        claim.setResponseStatus(status);
+        claim.setResponseBody(body);
+        claim.setExpiresAt(expiresAt);
+        cache.put(cacheKey(claim.getUserId(), claim.getIdempotencyKey()), claim);
+        return true;
+    }
+
+    // Gives the key back after a request that failed, so the client can retry with it
+    public void release(IdempotencyRecord claim) {
+        idempotencyRecordRepository.release(claim.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private static String cacheKey(Long userId, String key) {
+        return userId + ":" + key;
+    }
+}
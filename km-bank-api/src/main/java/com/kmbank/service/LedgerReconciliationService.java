@@ -0,0 +1,259 @@
+package com.kmbank.service;
+
+import com.kmbank.dto.BalanceDriftProjection;
+import com.kmbank.dto.DTOs.BalanceDriftResponse;
+import com.kmbank.dto.DTOs.ReconciliationReport;
+import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.AccountBalanceSnapshotRepository;
+import com.kmbank.repository.AccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Checks Account.balance against the ledger. Each account has a balance snapshot; an
+// incremental run verifies only the entries created since it, a full run re-derives
+// every balance from zero. Either way the account id space is split into chunks that
+// a fork-join pool verifies in parallel, one query and one transaction per chunk.
+// Accounts that reconcile are re-snapshotted; drifted ones keep their old snapshot, so
+// they are reported again on every run until fixed.
+@Slf4j
+@Service
+public class LedgerReconciliationService implements DisposableBean {
+
+    public enum Mode {
+        INCREMENTAL, FULL
+    }
+
+    private static final int MAX_REPORTED_DRIFTS = 1000;
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceSnapshotRepository snapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final long settleSeconds;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ReconciliationReport lastReport;
+
+    public LedgerReconciliationService(
+            AccountRepository accountRepository,
+            AccountBalanceSnapshotRepository snapshotRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${reconciliation.parallelism:4}") int parallelism,
+            @Value("${reconciliation.chunk-size:10000}") long chunkSize,
+            @Value("${reconciliation.settle-seconds:300}") long settleSeconds) {
+        this.accountRepository = accountRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.settleSeconds = settleSeconds;
+        // Each worker holds a database connection while it verifies a chunk; keep the
+        // parallelism well below the connection pool size
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("reconciliation-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @Scheduled(fixedDelayString = "${reconciliation.interval-ms:900000}",
+            initialDelayString = "${reconciliation.interval-ms:900000}")
+    public void reconcileIncremental() {
+        reconcile(Mode.INCREMENTAL);
+    }
+
+    @Scheduled(cron = "${reconciliation.full-cron:0 30 2 * * *}")
+    public void reconcileFull() {
+        reconcile(Mode.FULL);
+    }
+
+    // Runs on the calling thread; returns null when another run is in progress
+    public ReconciliationReport reconcile(Mode mode) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Skipping {} reconciliation, a run is already in progress", mode);
+            return null;
+        }
+        try {
+            return run(mode);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Starts a run in the background; poll getLastReport for the result
+    public ReconciliationReport start(Mode mode) {
+        if (!running.compareAndSet(false, true)) {
+            throw new Exceptions.ConcurrentUpdateException("A reconciliation run is already in progress");
+        }
+        ReconciliationReport report = ReconciliationReport.builder()
+                .mode(mode.name())
+                .running(true)
+                .startedAt(LocalDateTime.now())
+                .build();
+        lastReport = report;
+        pool.execute(() -> {
+            try {
+                run(mode);
+            } catch (RuntimeException e) {
+                log.error("{} reconciliation failed", mode, e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return report;
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    private ReconciliationReport run(Mode mode) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        // Entries created shortly before the run may belong to transactions that have not
+        // committed yet, so the new snapshots are taken a settle period in the past
+        LocalDateTime snapshotAt = startedAt.minusSeconds(settleSeconds);
+
+        Long minId = accountRepository.findMinId();
+        Long maxId = accountRepository.findMaxId();
+        ChunkResult result = minId == null
+                ? new ChunkResult()
+                : pool.invoke(new RangeTask(mode, minId, maxId + 1, snapshotAt));
+
+        long durationNanos = System.nanoTime() - start;
+        Timer.builder("kmbank.reconciliation")
+                .tag("mode", mode.name())
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("kmbank.reconciliation.drifts", "mode", mode.name()).increment(result.driftCount);
+
+        ReconciliationReport report = ReconciliationReport.builder()
+                .mode(mode.name())
+                .running(false)
+                .startedAt(startedAt)
+                .finishedAt(LocalDateTime.now())
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(durationNanos))
+                .accountsChecked(result.accounts)
+                .entriesChecked(result.entries)
+                .driftCount(result.driftCount)
+                .drifts(result.drifts)
+                .build();
+        lastReport = report;
+
+        if (result.driftCount > 0) {
+            log.warn("{} reconciliation found {} drifted accounts out of {}: {}",
+                    mode, result.driftCount, result.accounts, result.drifts);
+        } else {
+            log.info("{} reconciliation checked {} accounts and {} entries in {} ms",
+                    mode, result.accounts, result.entries, report.getDurationMs());
+        }
+        return report;
+    }
+
+    private ChunkResult verifyChunk(Mode mode, long lo, long hi, LocalDateTime snapshotAt) {
+        return transactionTemplate.execute(status -> {
+            ChunkResult result = new ChunkResult();
+            List<Long> drifted = new ArrayList<>();
+            for (BalanceDriftProjection row : snapshotRepository.verifyRange(lo, hi, mode == Mode.FULL)) {
+                result.accounts++;
+                result.entries += row.getEntriesChecked();
+                if (row.getActualBalance().compareTo(row.getExpectedBalance()) != 0 || row.getMismatchedEntries() > 0) {
+                    drifted.add(row.getAccountId());
+                    result.add(BalanceDriftResponse.builder()
+                            .accountId(row.getAccountId())
+                            .actualBalance(row.getActualBalance())
+                            .expectedBalance(row.getExpectedBalance())
+                            .drift(row.getActualBalance().subtract(row.getExpectedBalance()))
+                            .mismatchedEntries(row.getMismatchedEntries())
+                            .build());
+                }
+            }
+
+            // NOT IN () is not valid SQL, and no account has a negative id
+            List<Long> excluded = drifted.isEmpty() ? List.of(-1L) : drifted;
+            snapshotRepository.deleteRange(lo, hi, excluded);
+            snapshotRepository.insertRange(lo, hi, excluded, snapshotAt);
+            return result;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    // Splits [lo, hi) in halves until a range fits in one chunk
+    private class RangeTask extends RecursiveTask<ChunkResult> {
+
+        private final Mode mode;
+        private final long lo;
+        private final long hi;
+        private final LocalDateTime snapshotAt;
+
+        RangeTask(Mode mode, long lo, long hi, LocalDateTime snapshotAt) {
+            this.mode = mode;
+            this.lo = lo;
+            this.hi = hi;
+            this.snapshotAt = snapshotAt;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (hi - lo <= chunkSize) {
+                return verifyChunk(mode, lo, hi, snapshotAt);
+            }
+            long mid = lo + (hi - lo) / 2;
+            RangeTask left = new RangeTask(mode, lo, mid, snapshotAt);
+            left.fork();
+            ChunkResult result = new RangeTask(mode, mid, hi, snapshotAt).compute();
+            return result.merge(left.join());
+        }
+    }
+
+    private static class ChunkResult {
+
+        private long accounts;
+        private long entries;
+        private long driftCount;
+        private final List<BalanceDriftResponse> drifts = new ArrayList<>();
+
+        void add(BalanceDriftResponse drift) {
+            driftCount++;
+            if (drifts.size() < MAX_REPORTED_DRIFTS) {
+                drifts.add(drift);
+            }
+        }
+
+        ChunkResult merge(ChunkResult other) {
+            accounts += other.accounts;
+            entries += other.entries;
+            driftCount += other.driftCount;
+            for (BalanceDriftResponse drift : other.drifts) {
+                if (drifts.size() >= MAX_REPORTED_DRIFTS) {
+                    break;
+                }
+                drifts.add(drift);
+            }
+            return this;
+        }
+    }
+}
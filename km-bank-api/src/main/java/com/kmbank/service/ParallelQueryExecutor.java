@@ -0,0 +1,85 @@
+package com.kmbank.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs independent read queries concurrently and hands back lazy results, so a
+// response built from several aggregates waits for the slowest one, not the sum.
+// Each query gets its own read-only transaction (and connection) with a timeout that
+// is applied to the JDBC statements. The pool size caps how many connections fan-out
+// can hold at once; keep it well below the connection pool size. When the queue is
+// full, queries run on the caller's thread.
+@Component
+public class ParallelQueryExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final long timeoutMs;
+
+    public ParallelQueryExecutor(
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${queries.parallel.enabled:true}") boolean enabled,
+            @Value("${queries.parallel.threads:4}") int threads,
+            @Value("${queries.parallel.timeout-ms:5000}") long timeoutMs) {
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16), new CustomizableThreadFactory("query-fanout-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMs)));
+        new ExecutorServiceMetrics(executor, "query-fanout", List.of()).bindTo(meterRegistry);
+    }
+
+    // Starts the query now; the returned supplier blocks for its result. Map entities to
+    // DTOs inside the query, since the transaction is closed when the result is handed back.
+    public <T> Supplier<T> fork(Supplier<T> query) {
+        if (!enabled) {
+            T result = query.get();
+            return () -> result;
+        }
+        CompletableFuture<T> future = CompletableFuture
+                .supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()), executor)
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        return () -> await(future);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new QueryTimeoutException("Query did not complete in time", cause);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,294 @@
+package com.kmbank.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// One memory-mapped, append-only segment of deposit postings. A fixed header holds the
+// sequence number of the last posting applied to the database; records follow it,
+// framed as [payload length][CRC32 of payload][payload], and a zero length ends the
+// log. Appends only write into the mapping and sync() forces everything appended since
+// the previous sync in one go, so a single fsync covers every posting that arrived
+// while the previous one was running. Once every record has been applied, a full
+// segment is rewound and reused.
+final class PostingJournal implements Closeable {
+
+    record Posting(long seq, long accountId, long userId, BigDecimal amount, LocalDateTime createdAt,
+                   String referenceNumber, String description) {
+    }
+
+    private static final int MAGIC = 0x4B4D4A31; // "KMJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int APPLIED_SEQ_OFFSET = 8;
+    private static final int FRAME_SIZE = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+    // Held for the whole of a sync, so a rewind never races a force of the old range
+    private final Object syncLock = new Object();
+
+    private int position = HEADER_SIZE;
+    private int syncedPosition = HEADER_SIZE;
+    private long lastSeq;
+    private long syncedSeq;
+    private long appliedSeq;
+
+    private PostingJournal(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    // Maps the segment, creating it with the given capacity if it doesn't exist yet.
+    // Call recover() before appending.
+    static PostingJournal open(Path file, int capacity) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // An existing segment keeps the size it was created with
+            long size = channel.size() > 0 ? channel.size() : capacity;
+            if (size < HEADER_SIZE + FRAME_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid posting journal size " + size + ": " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) == 0) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(APPLIED_SEQ_OFFSET, 0);
+                buffer.force(0, HEADER_SIZE);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a posting journal: " + file);
+            }
+            return new PostingJournal(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Scans the segment, positions the writer after the last intact record and returns
+    // the records not applied yet, in sequence order. The scan ends at a zero length, a
+    // CRC mismatch (a torn write, never acknowledged because acknowledgement follows a
+    // sync) or a sequence number that doesn't increase (the stale tail of the segment
+    // before it was last rewound).
+    synchronized List<Posting> recover() {
+        appliedSeq = buffer.getLong(APPLIED_SEQ_OFFSET);
+        lastSeq = appliedSeq;
+
+        List<Posting> pending = new ArrayList<>();
+        int offset = HEADER_SIZE;
+        long previousSeq = 0;
+        while (offset + FRAME_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > buffer.capacity() - offset - FRAME_SIZE) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + FRAME_SIZE, payload);
+            if (checksum(payload) != buffer.getInt(offset + 4)) {
+                break;
+            }
+            Posting posting = decode(payload);
+            if (posting.seq() <= previousSeq) {
+                break;
+            }
+            previousSeq = posting.seq();
+            if (posting.seq() > appliedSeq) {
+                pending.add(posting);
+            }
+            lastSeq = Math.max(lastSeq, posting.seq());
+            offset += FRAME_SIZE + length;
+        }
+
+        position = offset;
+        syncedPosition = offset;
+        syncedSeq = lastSeq;
+        return pending;
+    }
+
+    // Writes a record after the last one and returns it with its sequence number, or
+    // null when the segment has no room left. Not durable until the next sync().
+    synchronized Posting append(long accountId, long userId, BigDecimal amount, LocalDateTime createdAt,
+                                String referenceNumber, String description) {
+        Posting posting = new Posting(lastSeq + 1, accountId, userId, amount, createdAt,
+                referenceNumber, description);
+        byte[] payload = encode(posting);
+        int end = position + FRAME_SIZE + payload.length;
+        if (end > buffer.capacity()) {
+            return null;
+        }
+
+        buffer.put(position + FRAME_SIZE, payload);
+        buffer.putInt(position + 4, checksum(payload));
+        buffer.putInt(position, payload.length);
+        // Terminates the log, unless the record ends exactly at the end of the segment
+        if (end + 4 <= buffer.capacity()) {
+            buffer.putInt(end, 0);
+        }
+        position = end;
+        lastSeq = posting.seq();
+        return posting;
+    }
+
+    // Makes every record appended so far durable. With force=false the records only
+    // reach the page cache: they survive a crash of the process, not of the machine.
+    void sync(boolean force) {
+        synchronized (syncLock) {
+            int from;
+            int end;
+            long seq;
+            synchronized (this) {
+                from = syncedPosition;
+                end = position;
+                seq = lastSeq;
+            }
+            if (force && end > from) {
+                // Includes the terminator after the last record
+                buffer.force(from, Math.min(end + 4, buffer.capacity()) - from);
+            }
+            synchronized (this) {
+                syncedPosition = end;
+                syncedSeq = seq;
+            }
+        }
+    }
+
+    // Cuts every record appended since the last successful sync. After a failed sync
+    // those records were reported as failed, so they must not be replayed even if the
+    // kernel writes them back later.
+    void truncateUnsynced() {
+        synchronized (syncLock) {
+            int from;
+            synchronized (this) {
+                from = syncedPosition;
+                if (from + 4 <= buffer.capacity()) {
+                    buffer.putInt(from, 0);
+                }
+                position = from;
+                lastSeq = syncedSeq;
+            }
+            if (from + 4 <= buffer.capacity()) {
+                buffer.force(from, 4);
+            }
+        }
+    }
+
+    // Records that every posting up to seq is in the database
+    void markApplied(long seq) {
+        synchronized (syncLock) {
+            synchronized (this) {
+                appliedSeq = Math.max(appliedSeq, seq);
+                buffer.putLong(APPLIED_SEQ_OFFSET, appliedSeq);
+            }
+            buffer.force(0, HEADER_SIZE);
+        }
+    }
+
+    // Starts writing from the beginning of the segment again; only once every record in
+    // it has been applied, so nothing that recovery would need is overwritten
+    boolean rewindIfApplied() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (appliedSeq < lastSeq) {
+                    return false;
+                }
+                buffer.putInt(HEADER_SIZE, 0);
+                position = HEADER_SIZE;
+                syncedPosition = HEADER_SIZE;
+            }
+            buffer.force(0, HEADER_SIZE + 4);
+            return true;
+        }
+    }
+
+    synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    synchronized long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private int checksum(byte[] payload) {
+        synchronized (crc) {
+            crc.reset();
+            crc.update(payload);
+            return (int) crc.getValue();
+        }
+    }
+
+    private static byte[] encode(Posting posting) {
+        byte[] unscaled = posting.amount().unscaledValue().toByteArray();
+        byte[] reference = posting.referenceNumber().getBytes(StandardCharsets.UTF_8);
+        byte[] description = posting.description() == null
+                ? null
+                : posting.description().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer out = ByteBuffer.allocate(8 + 8 + 8 + 4 + 1 + unscaled.length + 8 + 4
+                + 2 + reference.length + 4 + (description == null ? 0 : description.length));
+        out.putLong(posting.seq());
+        out.putLong(posting.accountId());
+        out.putLong(posting.userId());
+        out.putInt(posting.amount().scale());
+        out.put((byte) unscaled.length);
+        out.put(unscaled);
+        out.putLong(posting.createdAt().toEpochSecond(ZoneOffset.UTC));
+        out.putInt(posting.createdAt().getNano());
+        out.putShort((short) reference.length);
+        out.put(reference);
+        // -1 for a posting without a description
+        out.putInt(description == null ? -1 : description.length);
+        if (description != null) {
+            out.put(description);
+        }
+        return out.array();
+    }
+
+    private static Posting decode(byte[] payload) {
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        long seq = in.getLong();
+        long accountId = in.getLong();
+        long userId = in.getLong();
+        int scale = in.getInt();
+        byte[] unscaled = new byte[in.get()];
+        in.get(unscaled);
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+        byte[] reference = new byte[in.getShort()];
+        in.get(reference);
+        int descriptionLength = in.getInt();
+        String description = null;
+        if (descriptionLength >= 0) {
+            byte[] bytes = new byte[descriptionLength];
+            in.get(bytes);
+            description = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Posting(seq, accountId, userId, new BigDecimal(new BigInteger(unscaled), scale), createdAt,
+                new String(reference, StandardCharsets.UTF_8), description);
+    }
+}
@@ -0,0 +1,217 @@
+package com.kmbank.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountBalanceCheckpoint;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.AccountBalanceCheckpointRepository;
+import com.kmbank.repository.AccountLedgerEntryRepository;
+import com.kmbank.repository.AccountRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Monthly account statements: opening balance, every ledger line in the period with a
+// running balance, and the closing balance. The opening balance comes from the
+// period's checkpoint, or from the nearest earlier one plus the ledger in between, so
+// a statement never re-sums history back to account creation. Lines are streamed from
+// a database cursor straight into the JSON output.
+//
+// Checkpoints are only written once their boundary is settle-seconds in the past, so
+// transactions still in flight at the boundary have committed. A journaled deposit can
+// be applied much later than that; it drops the checkpoints it lands before, and they
+// are worked out again on the next statement.
+@Slf4j
+@Service
+public class StatementService {
+
+    private final AccountRepository accountRepository;
+    private final AccountLedgerEntryRepository accountLedgerEntryRepository;
+    private final AccountBalanceCheckpointRepository checkpointRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final Duration settle;
+
+    public StatementService(AccountRepository accountRepository,
+                            AccountLedgerEntryRepository accountLedgerEntryRepository,
+                            AccountBalanceCheckpointRepository checkpointRepository,
+                            EntityManager entityManager,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${statements.settle-seconds:300}") long settleSeconds) {
+        this.accountRepository = accountRepository;
+        this.accountLedgerEntryRepository = accountLedgerEntryRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // PostgreSQL only honours the fetch size inside a transaction
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.settle = Duration.ofSeconds(settleSeconds);
+    }
+
+    public Account getStatementAccount(Long accountId, Long userId, YearMonth month) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Account not found"));
+
+        if (!account.getUser().getId().equals(userId)) {
+            throw new Exceptions.UnauthorizedAccessException("You don't have access to this account");
+        }
+        if (month.isAfter(YearMonth.now())) {
+            throw new Exceptions.BadRequestException("Statement period has not started yet");
+        }
+        return account;
+    }
+
+    // Writes the statement as one JSON document; returns the number of lines written.
+    // The current month is a statement to date.
+    public long writeStatement(Account account, YearMonth month, OutputStream out) {
+        long start = System.nanoTime();
+        LocalDate periodStart = month.atDay(1);
+        LocalDate nextPeriodStart = month.plusMonths(1).atDay(1);
+        LocalDateTime from = periodStart.atStartOfDay();
+        LocalDateTime to = nextPeriodStart.atStartOfDay();
+        boolean closed = !LocalDateTime.now().isBefore(to);
+
+        BigDecimal opening = openingBalance(account.getId(), periodStart);
+
+        Totals totals = readOnlyTemplate.execute(status -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+                 Stream<AccountLedgerEntry> entries =
+                         accountLedgerEntryRepository.streamForStatement(account.getId(), from, to)) {
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                json.writeStartObject();
+                json.writeStringField("accountNumber", account.getAccountNumber());
+                json.writeStringField("accountName", account.getAccountName());
+                json.writeStringField("currency", account.getCurrency());
+                json.writeStringField("periodStart", periodStart.toString());
+                json.writeStringField("periodEnd", month.atEndOfMonth().toString());
+                json.writeNumberField("openingBalance", opening);
+
+                BigDecimal balance = opening;
+                BigDecimal credits = BigDecimal.ZERO;
+                BigDecimal debits = BigDecimal.ZERO;
+                long lines = 0;
+
+                json.writeArrayFieldStart("lines");
+                Iterator<AccountLedgerEntry> iterator = entries.iterator();
+                while (iterator.hasNext()) {
+                    AccountLedgerEntry entry = iterator.next();
+                    boolean credit = entry.getDirection() == AccountLedgerEntry.Direction.CREDIT;
+                    balance = credit ? balance.add(entry.getAmount()) : balance.subtract(entry.getAmount());
+                    if (credit) {
+                        credits = credits.add(entry.getAmount());
+                    } else {
+                        debits = debits.add(entry.getAmount());
+                    }
+
+                    json.writeStartObject();
+                    json.writeStringField("date", entry.getCreatedAt().toString());
+                    json.writeStringField("referenceNumber", entry.getTransaction().getReferenceNumber());
+                    json.writeStringField("transactionType", entry.getTransactionType().name());
+                    json.writeStringField("description", entry.getTransaction().getDescription());
+                    json.writeStringField("direction", entry.getDirection().name());
+                    json.writeNumberField("amount", entry.getAmount());
+                    json.writeNumberField("balance", balance);
+                    json.writeEndObject();
+
+                    if (++lines % AccountLedgerEntryRepository.STATEMENT_FETCH_SIZE == 0) {
+                        entityManager.clear();
+                    }
+                }
+                json.writeEndArray();
+
+                json.writeNumberField("totalCredits", credits);
+                json.writeNumberField("totalDebits", debits);
+                json.writeNumberField("closingBalance", balance);
+                json.writeNumberField("lineCount", lines);
+                json.writeEndObject();
+                return new Totals(balance, lines);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // A closed period's closing balance is the next period's opening balance
+        if (closed && settled(nextPeriodStart)) {
+            transactionTemplate.executeWithoutResult(status ->
+                    checkpointRepository.insertIfAbsent(account.getId(), nextPeriodStart, totals.closingBalance()));
+        }
+
+        log.info("Statement for account {} {} with {} lines in {} ms",
+                account.getId(), month, totals.lines(), (System.nanoTime() - start) / 1_000_000);
+        return totals.lines();
+    }
+
+    // The balance at the start of periodStart, stored as a checkpoint once worked out
+    public BigDecimal openingBalance(Long accountId, LocalDate periodStart) {
+        return transactionTemplate.execute(status -> {
+            Optional<AccountBalanceCheckpoint> checkpoint = checkpointRepository
+                    .findFirstByAccountIdAndPeriodStartLessThanEqualOrderByPeriodStartDesc(accountId, periodStart);
+            if (checkpoint.isPresent() && checkpoint.get().getPeriodStart().equals(periodStart)) {
+                return checkpoint.get().getOpeningBalance();
+            }
+
+            LocalDateTime boundary = periodStart.atStartOfDay();
+            BigDecimal opening = checkpoint
+                    .map(earlier -> earlier.getOpeningBalance().add(accountLedgerEntryRepository.netChangeBetween(
+                            accountId, earlier.getPeriodStart().atStartOfDay(), boundary)))
+                    .orElseGet(() -> accountLedgerEntryRepository.balanceAt(accountId, boundary));
+
+            if (settled(periodStart)) {
+                checkpointRepository.insertIfAbsent(accountId, periodStart, opening);
+            }
+            return opening;
+        });
+    }
+
+    // Call from the transaction that posts something dated postedAt after the fact;
+    // checkpoints at later boundaries no longer hold
+    public void invalidateCheckpoints(Long accountId, LocalDateTime postedAt) {
+        if (postedAt.isBefore(YearMonth.now().atDay(1).atStartOfDay())) {
+            checkpointRepository.deleteAfter(accountId, postedAt.toLocalDate());
+        }
+    }
+
+    // Seeds every account's checkpoint for the month that has just started
+    @Scheduled(cron = "${statements.checkpoint-cron:0 15 0 1 * *}")
+    public void checkpointCurrentMonth() {
+        LocalDate periodStart = YearMonth.now().atDay(1);
+        if (!settled(periodStart)) {
+            log.info("Not checkpointing {} yet, postings may still be committing", periodStart);
+            return;
+        }
+        Integer created = transactionTemplate.execute(status ->
+                checkpointRepository.checkpointAllAccounts(periodStart, periodStart.atStartOfDay()));
+        log.info("Created {} balance checkpoints for {}", created, periodStart);
+    }
+
+    private boolean settled(LocalDate boundary) {
+        return !LocalDateTime.now().isBefore(boundary.atStartOfDay().plus(settle));
+    }
+
+    private record Totals(BigDecimal closingBalance, long lines) {
+    }
+}
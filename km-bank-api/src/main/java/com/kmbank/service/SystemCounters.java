@@ -0,0 +1,148 @@
+package com.kmbank.service;
+
+import com.kmbank.entity.Transaction;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.TransactionRepository;
+import com.kmbank.repository.UserRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// System-wide admin dashboard totals kept as striped in-memory counters. Writers record
+// their deltas after commit; amounts are held in cents. A periodic reconcile re-reads
+// the source tables to correct drift (writes on other nodes, cascading deletes).
+@Component
+public class SystemCounters {
+
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+
+    private final LongAdder users = new LongAdder();
+    private final LongAdder accounts = new LongAdder();
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder activeBalanceCents = new LongAdder();
+    private final Map<Transaction.TransactionType, LongAdder> totalCentsByType =
+            new EnumMap<>(Transaction.TransactionType.class);
+
+    public SystemCounters(UserRepository userRepository, AccountRepository accountRepository,
+                          TransactionRepository transactionRepository) {
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
+            totalCentsByType.put(type, new LongAdder());
+        }
+    }
+
+    // ============ WRITERS ============
+
+    public void userRegistered() {
+        afterCommit(() -> users.increment());
+    }
+
+    public void accountOpened(BigDecimal openingBalance) {
+        afterCommit(() -> {
+            accounts.increment();
+            activeBalanceCents.add(cents(openingBalance));
+        });
+    }
+
+    // A posting of `amount` under `type`; balanceDelta is its net effect on active accounts
+    public void posted(Transaction.TransactionType type, BigDecimal amount, BigDecimal balanceDelta) {
+        posted(type, 1, amount, balanceDelta);
+    }
+
+    public void posted(Transaction.TransactionType type, int count, BigDecimal amount, BigDecimal balanceDelta) {
+        afterCommit(() -> {
+            transactions.add(count);
+            totalCentsByType.get(type).add(cents(amount));
+            activeBalanceCents.add(cents(balanceDelta));
+        });
+    }
+
+    // An account entering or leaving ACTIVE moves its balance in or out of the system total
+    public void activeBalanceChanged(BigDecimal delta) {
+        afterCommit(() -> activeBalanceCents.add(cents(delta)));
+    }
+
+    // For changes whose effect is not known up front, such as cascading deletes
+    public void reconcileAfterCommit() {
+        afterCommit(this::reconcile);
+    }
+
+    // ============ READERS ============
+
+    public long getUsers() {
+        return users.sum();
+    }
+
+    public long getAccounts() {
+        return accounts.sum();
+    }
+
+    public long getTransactions() {
+        return transactions.sum();
+    }
+
+    public BigDecimal getTotalByType(Transaction.TransactionType type) {
+        return BigDecimal.valueOf(totalCentsByType.get(type).sum(), 2);
+    }
+
+    public BigDecimal getSystemBalance() {
+        return BigDecimal.valueOf(activeBalanceCents.sum(), 2);
+    }
+
+    // ============ RECONCILE ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reconcile();
+    }
+
+    // Moves each counter to the table value plus whatever was recorded while the query ran.
+    // A write committed mid-query may be counted twice or not at all until the next run.
+    @Scheduled(fixedDelayString = "${admin.counters.reconcile-interval-ms:300000}",
+            initialDelayString = "${admin.counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        reset(users, userRepository::count);
+        reset(accounts, accountRepository::count);
+        reset(transactions, transactionRepository::count);
+        reset(activeBalanceCents, () -> cents(accountRepository.getSystemTotalBalance()));
+        totalCentsByType.forEach((type, adder) ->
+                reset(adder, () -> cents(transactionRepository.getTotalByType(type))));
+    }
+
+    private static void reset(LongAdder adder, LongSupplier source) {
+        long before = adder.sum();
+        long actual = source.getAsLong();
+        adder.add(actual - before);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.kmbank.service;
+
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.exception.Exceptions;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in a (createdAt DESC, id DESC) history listing, passed to clients as an
+// opaque URL-safe token.
+record TransactionCursor(LocalDateTime createdAt, Long id) {
+
+    static TransactionCursor of(AccountLedgerEntry entry) {
+        return new TransactionCursor(entry.getCreatedAt(), entry.getId());
+    }
+
+    static TransactionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new TransactionCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new Exceptions.BadRequestException("Invalid cursor");
+        }
+    }
+
+    String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,156 @@
+package com.kmbank.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kmbank.dto.DTOs.AdminTransactionResponse;
+import com.kmbank.entity.Transaction;
+import com.kmbank.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Writes matching transactions straight to an output stream as CSV or NDJSON. Rows
+// come from a forward-only database cursor and the persistence context is cleared
+// after every fetch, so heap use stays flat however many rows are exported.
+@Slf4j
+@Service
+public class TransactionExportService {
+
+    public enum Format {
+        CSV("text/csv"), NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    // Leading characters that make Excel and Sheets evaluate a cell
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private static final String[] CSV_HEADER = {
+            "id", "referenceNumber", "transactionType", "amount", "currency", "description", "status",
+            "sourceAccountNumber", "sourceAccountOwner", "destinationAccountNumber", "destinationAccountOwner",
+            "recipientName", "recipientBank", "balanceAfter", "createdAt"
+    };
+
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter jsonWriter;
+
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    EntityManager entityManager,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        // PostgreSQL only honours the fetch size inside a transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.jsonWriter = objectMapper.writerFor(AdminTransactionResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public long export(Format format, Transaction.TransactionType type, LocalDateTime from, LocalDateTime to,
+                       Long accountId, OutputStream out) {
+        long start = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        Long rows = transactionTemplate.execute(status -> {
+            try (Stream<Transaction> transactions = transactionRepository.streamForExport(type, from, to, accountId)) {
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, CSV_HEADER);
+                }
+                long count = 0;
+                Iterator<Transaction> iterator = transactions.iterator();
+                while (iterator.hasNext()) {
+                    AdminTransactionResponse row = AdminTransactionResponse.fromEntity(iterator.next());
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, csvFields(row));
+                    } else {
+                        jsonWriter.writeValue(writer, row);
+                        writer.write('\n');
+                    }
+                    if (++count % TransactionRepository.EXPORT_FETCH_SIZE == 0) {
+                        entityManager.clear();
+                    }
+                }
+                writer.flush();
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        log.info("Exported {} transactions as {} in {} ms", rows, format, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private static String[] csvFields(AdminTransactionResponse row) {
+        return new String[]{
+                String.valueOf(row.getId()), row.getReferenceNumber(), row.getTransactionType(),
+                toString(row.getAmount()), row.getCurrency(), row.getDescription(), row.getStatus(),
+                row.getSourceAccountNumber(), row.getSourceAccountOwner(),
+                row.getDestinationAccountNumber(), row.getDestinationAccountOwner(),
+                row.getRecipientName(), row.getRecipientBank(),
+                toString(row.getBalanceAfter()), toString(row.getCreatedAt())
+        };
+    }
+
+    private static void writeCsvRow(Writer writer, String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvField(writer, fields[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks. A field that
+    // a spreadsheet would read as a formula (user-entered descriptions, names) gets a
+    // leading apostrophe and is quoted, so it opens as text.
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean formula = !value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0;
+        if (!formula && value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
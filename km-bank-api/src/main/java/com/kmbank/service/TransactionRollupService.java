@@ -0,0 +1,183 @@
+package com.kmbank.service;
+
+import com.kmbank.dto.HourlyTypeTotalProjection;
+import com.kmbank.entity.DailyTransactionRollup;
+import com.kmbank.entity.HourlyTransactionRollup;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.TransactionRollup;
+import com.kmbank.repository.DailyTransactionRollupRepository;
+import com.kmbank.repository.HourlyTransactionRollupRepository;
+import com.kmbank.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+// Maintains the hourly and daily rollup tables behind the admin analytics.
+// Postings add their totals to the rollup rows inside their own database transaction,
+// so a rollup never holds a posting that rolled back or misses one that committed, on
+// any node and across crashes. Each bucket is split into shard rows and a posting
+// picks one at random, so postings in the same hour rarely queue on one row.
+//
+// Locks are always taken on daily rows before hourly ones, days and shards in
+// ascending order. A rebuild locks every shard row of its day first, so postings for
+// that day either committed before the recount reads them or wait and add on top of it.
+@Slf4j
+@Service
+public class TransactionRollupService {
+
+    private final TransactionRepository transactionRepository;
+    private final HourlyTransactionRollupRepository hourlyRepository;
+    private final DailyTransactionRollupRepository dailyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${analytics.rollups.shards:8}")
+    private int shards = 8;
+
+    public TransactionRollupService(TransactionRepository transactionRepository,
+                                    HourlyTransactionRollupRepository hourlyRepository,
+                                    DailyTransactionRollupRepository dailyRepository,
+                                    TransactionTemplate transactionTemplate) {
+        this.transactionRepository = transactionRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.dailyRepository = dailyRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // ============ RECORDING ============
+
+    // Call from the transaction that posts; joins it, or runs in its own when there is none
+    public void record(Transaction transaction) {
+        record(List.of(transaction));
+    }
+
+    public void record(Collection<Transaction> transactions) {
+        Map<LocalDateTime, DailyTransactionRollup> days = new TreeMap<>();
+        Map<LocalDateTime, HourlyTransactionRollup> hours = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            LocalDateTime createdAt = transaction.getCreatedAt() != null
+                    ? transaction.getCreatedAt()
+                    : LocalDateTime.now();
+            days.computeIfAbsent(createdAt.truncatedTo(ChronoUnit.DAYS), DailyTransactionRollup::new)
+                    .add(transaction.getTransactionType(), 1, transaction.getAmount());
+            hours.computeIfAbsent(createdAt.truncatedTo(ChronoUnit.HOURS), HourlyTransactionRollup::new)
+                    .add(transaction.getTransactionType(), 1, transaction.getAmount());
+        }
+        if (days.isEmpty()) {
+            return;
+        }
+
+        int shard = ThreadLocalRandom.current().nextInt(shards);
+        transactionTemplate.executeWithoutResult(status -> {
+            days.values().forEach(delta -> addDaily(delta, shard));
+            hours.values().forEach(delta -> addHourly(delta, shard));
+        });
+    }
+
+    private void addDaily(TransactionRollup delta, int shard) {
+        if (addDelta(dailyRepository::addDelta, delta, shard) == 0) {
+            dailyRepository.insertIfAbsent(delta.getBucketStart(), shard);
+            addDelta(dailyRepository::addDelta, delta, shard);
+        }
+    }
+
+    private void addHourly(TransactionRollup delta, int shard) {
+        if (addDelta(hourlyRepository::addDelta, delta, shard) == 0) {
+            hourlyRepository.insertIfAbsent(delta.getBucketStart(), shard);
+            addDelta(hourlyRepository::addDelta, delta, shard);
+        }
+    }
+
+    private static int addDelta(DeltaUpdate update, TransactionRollup delta, int shard) {
+        return update.apply(delta.getBucketStart(), shard,
+                delta.getDepositCount(), delta.getDepositTotal(),
+                delta.getWithdrawalCount(), delta.getWithdrawalTotal(),
+                delta.getTransferCount(), delta.getTransferTotal());
+    }
+
+    @FunctionalInterface
+    private interface DeltaUpdate {
+        int apply(LocalDateTime bucketStart, int shard,
+                  long depositCount, BigDecimal depositTotal,
+                  long withdrawalCount, BigDecimal withdrawalTotal,
+                  long transferCount, BigDecimal transferTotal);
+    }
+
+    // ============ REBUILD ============
+
+    // Recomputes every day in [from, to] from raw transactions, one database transaction
+    // per day. Only needed to backfill or repair: postings keep the rollups exact.
+    public void rebuild(LocalDate from, LocalDate to) {
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            rebuildDay(day);
+        }
+        log.info("Rebuilt transaction rollups from {} to {}", from, to);
+    }
+
+    private void rebuildDay(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Every shard row must exist to be locked; postings for the day wait from here on
+            for (int shard = 0; shard < shards; shard++) {
+                dailyRepository.insertIfAbsent(from, shard);
+            }
+            dailyRepository.lockShards(from);
+
+            Map<Integer, HourlyTransactionRollup> hours = new TreeMap<>();
+            DailyTransactionRollup daily = new DailyTransactionRollup(from, 0);
+            for (HourlyTypeTotalProjection row : transactionRepository.getHourlyTotals(from, to)) {
+                hours.computeIfAbsent(row.getBucketHour(), hour -> new HourlyTransactionRollup(from.plusHours(hour), 0))
+                        .add(row.getTransactionType(), row.getTransactionCount(), row.getTotalAmount());
+                daily.add(row.getTransactionType(), row.getTransactionCount(), row.getTotalAmount());
+            }
+
+            hourlyRepository.deleteBuckets(from, to);
+            dailyRepository.deleteBuckets(from, to);
+            hourlyRepository.saveAll(hours.values());
+            if (!hours.isEmpty()) {
+                dailyRepository.save(daily);
+            }
+        });
+    }
+
+    // ============ READS ============
+
+    public List<HourlyTransactionRollup> getHourly(LocalDateTime from) {
+        return sumShards(hourlyRepository.findByBucketStartGreaterThanEqualOrderByBucketStart(
+                from.truncatedTo(ChronoUnit.HOURS)), HourlyTransactionRollup::new);
+    }
+
+    public List<DailyTransactionRollup> getDaily(LocalDateTime from) {
+        return sumShards(dailyRepository.findByBucketStartGreaterThanEqualOrderByBucketStart(
+                from.truncatedTo(ChronoUnit.DAYS)), DailyTransactionRollup::new);
+    }
+
+    // Rows come ordered by bucket; consecutive shards of a bucket are folded into one
+    private static <T extends TransactionRollup> List<T> sumShards(List<T> rows,
+                                                                   Function<LocalDateTime, T> bucket) {
+        List<T> buckets = new ArrayList<>();
+        T current = null;
+        for (T row : rows) {
+            if (current == null || !current.getBucketStart().equals(row.getBucketStart())) {
+                current = bucket.apply(row.getBucketStart());
+                buckets.add(current);
+            }
+            current.add(row);
+        }
+        return buckets;
+    }
+}
@@ -1,19 +1,30 @@
 package com.kmbank.service;
 
+import com.kmbank.dto.AccountRecipientProjection;
+import com.kmbank.dto.BalanceUpdateProjection;
 import com.kmbank.dto.DTOs.*;
 import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
 import com.kmbank.entity.Transaction;
 import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.AccountLedgerEntryRepository;
 import com.kmbank.repository.AccountRepository;
 import com.kmbank.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +33,15 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
+    private final AccountLedgerEntryRepository accountLedgerEntryRepository;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+    private final DashboardCache dashboardCache;
+    private final SystemCounters systemCounters;
+    private final TransactionRollupService transactionRollupService;
+    private final IdempotencyService idempotencyService;
+
+    @Value("${transactions.batch.max-size:5000}")
+    private int maxBatchSize;
 
     public Page<TransactionResponse> getTransactionsByAccountId(long accountId, Long userId, int page, int size) {
         Account account = accountRepository.findById(accountId)
@@ -32,13 +52,54 @@ public class TransactionService {
         }
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<Transaction> transactions = transactionRepository.findByAccountId(accountId, pageable);
-        return transactions.map(tx -> TransactionResponse.fromEntity(tx, accountId));
+        return accountLedgerEntryRepository.findByAccountId(accountId, pageable)
+                .map(TransactionResponse::fromLedgerEntry);
+    }
+
+    public CursorPageResponse<TransactionResponse> getTransactionsByAccountIdKeyset(
+            long accountId, Long userId, String cursor, int size, boolean includeTotal) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Account not found"));
+
+        if (!account.getUser().getId().equals(userId)) {
+            throw new Exceptions.UnauthorizedAccessException("You don't have access to this account");
+        }
+
+        // Fetch one extra row to know whether another page exists, without a count query
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<AccountLedgerEntry> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = accountLedgerEntryRepository.findFirstByAccountIdKeyset(accountId, limit);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            rows = accountLedgerEntryRepository.findNextByAccountIdKeyset(
+                    accountId, position.createdAt(), position.id(), limit);
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<AccountLedgerEntry> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? TransactionCursor.of(page.get(page.size() - 1)).encode() : null;
+
+        return CursorPageResponse.<TransactionResponse>builder()
+                .content(page.stream()
+                        .map(TransactionResponse::fromLedgerEntry)
+                        .collect(Collectors.toList()))
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(includeTotal ? accountLedgerEntryRepository.countByAccountId(accountId) : null)
+                .build();
     }
 
     public List<TransactionResponse> getRecentTransactionsByUserId(Long userId, int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        return transactionRepository.findRecentByUserId(userId, pageable).stream()
+        // A transfer between two of the user's accounts has two entries; over-fetch and dedupe
+        List<AccountLedgerEntry> entries = accountLedgerEntryRepository
+                .findRecentByUserId(userId, PageRequest.of(0, limit * 2));
+        Set<Long> seen = new HashSet<>();
+        return entries.stream()
+                .map(AccountLedgerEntry::getTransaction)
+                .filter(tx -> seen.add(tx.getId()))
+                .limit(limit)
                 .map(TransactionResponse::fromEntity)
                 .collect(Collectors.toList());
     }
@@ -59,67 +120,90 @@ public class TransactionService {
         return TransactionResponse.fromEntity(transaction);
     }
 
+    // ============ BALANCE MUTATIONS ============
+    // Deposits and withdrawals are a single conditional UPDATE ... RETURNING, so they
+    // need no read-modify-write and no application-level lock. Transfers still go
+    // through BalanceMutationExecutor, which either holds the account locks until
+    // commit or retries on version conflicts.
+
     @Transactional
     public TransactionResponse deposit(DepositWithdrawRequest request, Long userId) {
-        Account account = accountRepository.findById(request.getAccountId())
-                .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Account not found"));
-
-        if (!account.getUser().getId().equals(userId)) {
-            throw new Exceptions.UnauthorizedAccessException("You don't have access to this account");
-        }
-        if (account.getStatus() != Account.AccountStatus.ACTIVE) {
-            throw new Exceptions.BadRequestException("Account is not active");
-        }
-
-        account.setBalance(account.getBalance().add(request.getAmount()));
-        accountRepository.save(account);
+        BalanceUpdateProjection updated = accountRepository
+                .applyBalanceDelta(request.getAccountId(), userId, request.getAmount())
+                .orElseThrow(() -> rejectedPosting(request.getAccountId(), userId, false));
 
         Transaction transaction = Transaction.builder()
                 .transactionType(Transaction.TransactionType.DEPOSIT)
                 .amount(request.getAmount())
                 .description(request.getDescription() != null ? request.getDescription() : "Cash Deposit")
-                .destinationAccount(account)
-                .balanceAfter(account.getBalance())
+                .destinationAccount(accountRepository.getReferenceById(request.getAccountId()))
+                .balanceAfter(updated.getBalance())
                 .build();
+        transaction.addLedgerEntry(transaction.getDestinationAccount(), userId,
+                AccountLedgerEntry.Direction.CREDIT, updated.getBalance());
 
         transaction = transactionRepository.save(transaction);
+        markClaimPosted();
+        dashboardCache.evict(userId);
+        systemCounters.posted(Transaction.TransactionType.DEPOSIT, request.getAmount(), request.getAmount());
+        transactionRollupService.record(transaction);
 
-        return TransactionResponse.fromEntity(transaction, account.getId());
+        return TransactionResponse.fromPosting(transaction, updated.getAccountNumber(), true);
     }
 
     @Transactional
     public TransactionResponse withdraw(DepositWithdrawRequest request, Long userId) {
-        Account account = accountRepository.findById(request.getAccountId())
-                .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Account not found"));
-
-        if (!account.getUser().getId().equals(userId)) {
-            throw new Exceptions.UnauthorizedAccessException("You don't have access to this account");
-        }
-
-        if (account.getStatus() != Account.AccountStatus.ACTIVE) {
-            throw new Exceptions.InsufficientFundsException("Insufficient funds");
-        }
-
-        account.setBalance(account.getBalance().subtract(request.getAmount()));
-        accountRepository.save(account);
+        BalanceUpdateProjection updated = accountRepository
+                .applyBalanceDelta(request.getAccountId(), userId, request.getAmount().negate())
+                .orElseThrow(() -> rejectedPosting(request.getAccountId(), userId, true));
 
         Transaction transaction = Transaction.builder()
                 .transactionType(Transaction.TransactionType.WITHDRAWAL)
                 .amount(request.getAmount())
                 .description(request.getDescription() != null ? request.getDescription() : "Cash Withdrawal")
-                .sourceAccount(account)
-                .balanceAfter(account.getBalance())
+                .sourceAccount(accountRepository.getReferenceById(request.getAccountId()))
+                .balanceAfter(updated.getBalance())
                 .build();
+        transaction.addLedgerEntry(transaction.getSourceAccount(), userId,
+                AccountLedgerEntry.Direction.DEBIT, updated.getBalance());
 
         transaction = transactionRepository.save(transaction);
+        markClaimPosted();
+        dashboardCache.evict(userId);
+        systemCounters.posted(Transaction.TransactionType.WITHDRAWAL, request.getAmount(),
+                request.getAmount().negate());
+        transactionRollupService.record(transaction);
 
-        return TransactionResponse.fromEntity(transaction, account.getId());
+        return TransactionResponse.fromPosting(transaction, updated.getAccountNumber(), false);
     }
 
-    @Transactional
     public TransactionResponse transfer(TransferRequest request, Long userId) {
-        Account sourceAccount = accountRepository.findById(request.getSourceAccountId())
-                .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Source account not found"));
+        // Check if destination is internal or external
+        Long destinationAccountId = accountRepository
+                .findIdByAccountNumber(request.getDestinationAccountNumber())
+                .orElse(null);
+
+        List<Long> accountIds = destinationAccountId != null
+                ? List.of(request.getSourceAccountId(), destinationAccountId)
+                : List.of(request.getSourceAccountId());
+
+        return balanceMutationExecutor.execute("transfer", accountIds,
+                () -> doTransfer(request, userId, destinationAccountId));
+    }
+
+    private TransactionResponse doTransfer(TransferRequest request, Long userId, Long destinationAccountId) {
+        // Accounts are loaded in ascending id order, same as the stripe locks
+        Account sourceAccount;
+        Account destinationAccount = null;
+        if (destinationAccountId != null && destinationAccountId < request.getSourceAccountId()) {
+            destinationAccount = loadAccount(destinationAccountId, "Destination account not found");
+            sourceAccount = loadAccount(request.getSourceAccountId(), "Source account not found");
+        } else {
+            sourceAccount = loadAccount(request.getSourceAccountId(), "Source account not found");
+            if (destinationAccountId != null) {
+                destinationAccount = loadAccount(destinationAccountId, "Destination account not found");
+            }
+        }
 
         if (!sourceAccount.getUser().getId().equals(userId)) {
             throw new Exceptions.UnauthorizedAccessException("You don't have access to this account");
@@ -133,9 +217,9 @@ public class TransactionService {
             throw new Exceptions.InsufficientFundsException("Insufficient funds");
         }
 
-        // Check if destination is internal or external
-        Account destinationAccount = accountRepository.findByAccountNumber(request.getDestinationAccountNumber())
-                .orElse(null);
+        if (destinationAccount != null && destinationAccount.getStatus() != Account.AccountStatus.ACTIVE) {
+            throw new Exceptions.BadRequestException("Destination account is not active");
+        }
 
         // Deduct from source
         sourceAccount.setBalance(sourceAccount.getBalance().subtract(request.getAmount()));
@@ -148,18 +232,15 @@ public class TransactionService {
                 .sourceAccount(sourceAccount)
                 .balanceAfter(sourceAccount.getBalance())
                 .build();
+        transaction.addLedgerEntry(sourceAccount, userId,
+                AccountLedgerEntry.Direction.DEBIT, sourceAccount.getBalance());
 
         if (destinationAccount != null) {
-           // Internal transfer
-            if (destinationAccount.getStatus() != Account.AccountStatus.ACTIVE) {
-            // Rollback source deduction
-                sourceAccount.setBalance(sourceAccount.getBalance().add(request.getAmount()));
-                accountRepository.save(sourceAccount);
-                throw new Exceptions.BadRequestException("Destination account is not active");
-            }
-
+            // Internal transfer
             destinationAccount.setBalance(destinationAccount.getBalance().add(request.getAmount()));
             accountRepository.save(destinationAccount);
+            transaction.addLedgerEntry(destinationAccount, destinationAccount.getUser().getId(),
+                    AccountLedgerEntry.Direction.CREDIT, destinationAccount.getBalance());
 
             transaction.setDestinationAccount(destinationAccount);
             transaction.setRecipientName(destinationAccount.getUser().getFullName());
@@ -172,7 +253,197 @@ public class TransactionService {
         }
 
         transaction = transactionRepository.save(transaction);
+        markClaimPosted();
+        dashboardCache.evict(destinationAccount != null
+                ? List.of(userId, destinationAccount.getUser().getId())
+                : List.of(userId));
+        // Internal transfers move money between active accounts; external ones leave the system
+        systemCounters.posted(Transaction.TransactionType.TRANSFER, request.getAmount(),
+                destinationAccount != null ? BigDecimal.ZERO : request.getAmount().negate());
+        transactionRollupService.record(transaction);
 
         return TransactionResponse.fromEntity(transaction, sourceAccount.getId());
     }
-}
\ No newline at end of file
+
+    // ============ BATCH TRANSFERS ============
+    // One source account, many destinations: destinations are resolved with a single
+    // IN query, funds are checked once for the batch total, and all Transaction rows
+    // are written with one saveAll. Invalid items are reported, not fatal.
+
+    public BatchTransferResponse batchTransfer(BatchTransferRequest request, Long userId) {
+        List<TransferRequest> items = request.getTransfers();
+        if (items.size() > maxBatchSize) {
+            throw new Exceptions.BadRequestException("A batch can contain at most " + maxBatchSize + " transfers");
+        }
+
+        Long sourceAccountId = items.get(0).getSourceAccountId();
+
+        Set<String> destinationNumbers = items.stream()
+                .map(TransferRequest::getDestinationAccountNumber)
+                .collect(Collectors.toSet());
+        Map<String, AccountRecipientProjection> recipients = accountRepository
+                .findRecipientsByAccountNumberIn(destinationNumbers).stream()
+                .collect(Collectors.toMap(AccountRecipientProjection::getAccountNumber, r -> r));
+
+        List<Long> accountIds = new ArrayList<>();
+        accountIds.add(sourceAccountId);
+        recipients.values().forEach(r -> accountIds.add(r.getId()));
+
+        return balanceMutationExecutor.execute("transfer-batch", accountIds,
+                () -> doBatchTransfer(items, userId, sourceAccountId, recipients, accountIds));
+    }
+
+    private BatchTransferResponse doBatchTransfer(List<TransferRequest> items, Long userId, Long sourceAccountId,
+                                                  Map<String, AccountRecipientProjection> recipients,
+                                                  List<Long> accountIds) {
+        Map<Long, Account> accounts = balanceMutationExecutor.loadAccounts(accountIds);
+
+        Account sourceAccount = accounts.get(sourceAccountId);
+        if (sourceAccount == null) {
+            throw new Exceptions.ResourceNotFoundException("Source account not found");
+        }
+        if (!sourceAccount.getUser().getId().equals(userId)) {
+            throw new Exceptions.UnauthorizedAccessException("You don't have access to this account");
+        }
+        if (sourceAccount.getStatus() != Account.AccountStatus.ACTIVE) {
+            throw new Exceptions.BadRequestException("Source account is not active");
+        }
+
+        BatchTransferItemResult[] results = new BatchTransferItemResult[items.size()];
+        List<Integer> accepted = new ArrayList<>();
+        BigDecimal totalAmount = BigDecimal.ZERO;
+
+        for (int i = 0; i < items.size(); i++) {
+            String error = validateBatchItem(items.get(i), sourceAccount, recipients, accounts);
+            if (error != null) {
+                results[i] = BatchTransferItemResult.builder().index(i).success(false).message(error).build();
+            } else {
+                accepted.add(i);
+                totalAmount = totalAmount.add(items.get(i).getAmount());
+            }
+        }
+
+        // Funds are checked once, against the total of all valid items
+        if (sourceAccount.getBalance().compareTo(totalAmount) < 0) {
+            throw new Exceptions.InsufficientFundsException("Insufficient funds for batch total of " + totalAmount);
+        }
+
+        BigDecimal runningBalance = sourceAccount.getBalance();
+        BigDecimal externalAmount = BigDecimal.ZERO;
+        List<Transaction> transactions = new ArrayList<>(accepted.size());
+
+        for (int index : accepted) {
+            TransferRequest item = items.get(index);
+            runningBalance = runningBalance.subtract(item.getAmount());
+
+            Transaction transaction = Transaction.builder()
+                    .transactionType(Transaction.TransactionType.TRANSFER)
+                    .amount(item.getAmount())
+                    .description(item.getDescription())
+                    .sourceAccount(sourceAccount)
+                    .balanceAfter(runningBalance)
+                    .build();
+            transaction.addLedgerEntry(sourceAccount, userId,
+                    AccountLedgerEntry.Direction.DEBIT, runningBalance);
+
+            AccountRecipientProjection recipient = recipients.get(item.getDestinationAccountNumber());
+            if (recipient != null) {
+                // Internal transfer
+                Account destinationAccount = accounts.get(recipient.getId());
+                destinationAccount.setBalance(destinationAccount.getBalance().add(item.getAmount()));
+                transaction.setDestinationAccount(destinationAccount);
+                transaction.addLedgerEntry(destinationAccount, destinationAccount.getUser().getId(),
+                        AccountLedgerEntry.Direction.CREDIT, destinationAccount.getBalance());
+                transaction.setRecipientName(recipient.getOwnerName());
+            } else {
+                // External Transfer
+                externalAmount = externalAmount.add(item.getAmount());
+                transaction.setRecipientAccount(item.getDestinationAccountNumber());
+                transaction.setRecipientName(item.getRecipientName());
+                transaction.setRecipientBank(item.getRecipientBank());
+            }
+            transactions.add(transaction);
+        }
+
+        // Dirty account balances are flushed with the inserts at commit, as JDBC batches
+        sourceAccount.setBalance(runningBalance);
+        transactions = transactionRepository.saveAll(transactions);
+        markClaimPosted();
+        dashboardCache.evict(accounts.values().stream()
+                .map(account -> account.getUser().getId())
+                .collect(Collectors.toSet()));
+        systemCounters.posted(Transaction.TransactionType.TRANSFER, transactions.size(), totalAmount,
+                externalAmount.negate());
+        transactionRollupService.record(transactions);
+
+        for (int k = 0; k < accepted.size(); k++) {
+            int index = accepted.get(k);
+            results[index] = BatchTransferItemResult.builder()
+                    .index(index)
+                    .success(true)
+                    .message("Transfer successful")
+                    .transaction(TransactionResponse.fromEntity(transactions.get(k), sourceAccountId))
+                    .build();
+        }
+
+        return BatchTransferResponse.builder()
+                .sourceAccountId(sourceAccountId)
+                .totalCount(items.size())
+                .successCount(accepted.size())
+                .failureCount(items.size() - accepted.size())
+                .totalAmount(totalAmount)
+                .balanceAfter(runningBalance)
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private String validateBatchItem(TransferRequest item, Account sourceAccount,
+                                     Map<String, AccountRecipientProjection> recipients,
+                                     Map<Long, Account> accounts) {
+        if (!sourceAccount.getId().equals(item.getSourceAccountId())) {
+            return "All transfers in a batch must use the same source account";
+        }
+        AccountRecipientProjection recipient = recipients.get(item.getDestinationAccountNumber());
+        if (recipient == null) {
+            return null;
+        }
+        Account destinationAccount = accounts.get(recipient.getId());
+        if (destinationAccount == null) {
+            return "Destination account not found";
+        }
+        if (destinationAccount.getId().equals(sourceAccount.getId())) {
+            return "Cannot transfer to the source account";
+        }
+        if (destinationAccount.getStatus() != Account.AccountStatus.ACTIVE) {
+            return "Destination account is not active";
+        }
+        return null;
+    }
+
+    // Rolls the posting back if a retry with the same Idempotency-Key has taken over
+    private void markClaimPosted() {
+        if (!idempotencyService.markPosted()) {
+            throw new Exceptions.ConcurrentUpdateException(
+                    "A retry with this Idempotency-Key took over the request, check the transaction history");
+        }
+    }
+
+    private Account loadAccount(Long accountId, String notFoundMessage) {
+        return balanceMutationExecutor.loadAccount(accountId, notFoundMessage);
+    }
+
+    // Works out why a conditional balance update matched no row. Only runs on the failure path.
+    private RuntimeException rejectedPosting(Long accountId, Long userId, boolean debit) {
+        Account account = accountRepository.findById(accountId).orElse(null);
+        if (account == null) {
+            return new Exceptions.ResourceNotFoundException("Account not found");
+        }
+        if (!account.getUser().getId().equals(userId)) {
+            return new Exceptions.UnauthorizedAccessException("You don't have access to this account");
+        }
+        if (account.getStatus() != Account.AccountStatus.ACTIVE && !debit) {
+            return new Exceptions.BadRequestException("Account is not active");
+        }
+        return new Exceptions.InsufficientFundsException("Insufficient funds");
+    }
+}
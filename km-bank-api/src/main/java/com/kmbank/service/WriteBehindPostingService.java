@@ -0,0 +1,601 @@
+package com.kmbank.service;
+
+import com.kmbank.dto.BalanceUpdateProjection;
+import com.kmbank.dto.DTOs.DepositWithdrawRequest;
+import com.kmbank.dto.DTOs.TransactionResponse;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.JournalDeadLetter;
+import com.kmbank.entity.Transaction;
+import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.JournalDeadLetterRepository;
+import com.kmbank.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Write-behind deposits (transactions.posting-mode=journal). A validated deposit is
+// appended to the PostingJournal and acknowledged as PENDING once the journal has been
+// synced; it does not wait for a database commit. A sync thread fsyncs the journal
+// once for everything appended since its previous sync (group commit), and a flusher
+// thread applies the synced postings to the database in batches, one transaction per
+// batch and one balance update per account in the batch. On startup the postings the
+// flusher hadn't applied are replayed; postings whose reference number is already in
+// the database were committed just before a crash and are skipped. A posting the
+// database keeps rejecting is parked in journal_dead_letters.
+@Slf4j
+@Service
+public class WriteBehindPostingService {
+
+    public enum Mode {
+        DIRECT, JOURNAL
+    }
+
+    private final TransactionRepository transactionRepository;
+    private final JournalDeadLetterRepository journalDeadLetterRepository;
+    private final AccountRepository accountRepository;
+    private final DashboardCache dashboardCache;
+    private final SystemCounters systemCounters;
+    private final TransactionRollupService transactionRollupService;
+    private final StatementService statementService;
+    private final IdempotencyService idempotencyService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Mode mode;
+    private final Path journalFile;
+    private final int segmentSize;
+    private final int batchSize;
+    private final boolean fsync;
+    private final long retryBackoffMs;
+    private final long spaceWaitMs;
+
+    // Guards appends, so postings reach the sync thread in sequence order
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition appended = appendLock.newCondition();
+    private final Condition rewound = appendLock.newCondition();
+    private List<Appended> unsynced = new ArrayList<>();
+
+    private final BlockingQueue<PostingJournal.Posting> unapplied = new LinkedBlockingQueue<>();
+    // Journaled deposits per user that are not in the database yet
+    private final Map<Long, Integer> unappliedByUser = new ConcurrentHashMap<>();
+
+    private PostingJournal journal;
+    private Thread syncThread;
+    private Thread flushThread;
+    private volatile boolean accepting;
+    private volatile boolean stopping;
+
+    public WriteBehindPostingService(
+            TransactionRepository transactionRepository,
+            JournalDeadLetterRepository journalDeadLetterRepository,
+            AccountRepository accountRepository,
+            DashboardCache dashboardCache,
+            SystemCounters systemCounters,
+            TransactionRollupService transactionRollupService,
+            StatementService statementService,
+            IdempotencyService idempotencyService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${transactions.posting-mode:direct}") String mode,
+            @Value("${transactions.journal.dir:journal}") String journalDir,
+            @Value("${transactions.journal.segment-size-mb:64}") int segmentSizeMb,
+            @Value("${transactions.journal.batch-size:1000}") int batchSize,
+            @Value("${transactions.journal.fsync:true}") boolean fsync,
+            @Value("${transactions.journal.retry-backoff-ms:1000}") long retryBackoffMs,
+            @Value("${transactions.journal.space-wait-ms:2000}") long spaceWaitMs) {
+        this.transactionRepository = transactionRepository;
+        this.journalDeadLetterRepository = journalDeadLetterRepository;
+        this.accountRepository = accountRepository;
+        this.dashboardCache = dashboardCache;
+        this.systemCounters = systemCounters;
+        this.transactionRollupService = transactionRollupService;
+        this.statementService = statementService;
+        this.idempotencyService = idempotencyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.mode = Mode.valueOf(mode.toUpperCase());
+        this.journalFile = Path.of(journalDir, "postings.journal");
+        this.segmentSize = Math.max(1, segmentSizeMb) * 1024 * 1024;
+        this.batchSize = Math.max(1, batchSize);
+        this.fsync = fsync;
+        this.retryBackoffMs = retryBackoffMs;
+        this.spaceWaitMs = spaceWaitMs;
+    }
+
+    public boolean isEnabled() {
+        return mode == Mode.JOURNAL;
+    }
+
+    // Whether this node holds deposits for the user that have been accepted but not yet
+    // applied to the database
+    public boolean hasUnappliedDeposits(Long userId) {
+        return unappliedByUser.containsKey(userId);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            journal = PostingJournal.open(journalFile, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open posting journal " + journalFile, e);
+        }
+        List<PostingJournal.Posting> recovered = journal.recover();
+        if (!recovered.isEmpty()) {
+            log.warn("Replaying {} journaled postings not yet applied (seq {} to {})",
+                    recovered.size(), recovered.get(0).seq(), recovered.get(recovered.size() - 1).seq());
+            unapplied.addAll(recovered);
+            recovered.forEach(posting -> unappliedByUser.merge(posting.userId(), 1, Integer::sum));
+        }
+        meterRegistry.gauge("kmbank.journal.unapplied", unapplied, BlockingQueue::size);
+
+        CustomizableThreadFactory threads = new CustomizableThreadFactory("posting-journal-");
+        syncThread = threads.newThread(this::syncLoop);
+        flushThread = threads.newThread(this::flushLoop);
+        syncThread.start();
+        flushThread.start();
+        accepting = true;
+        log.info("Write-behind deposits enabled, journal {} ({} MB, fsync={})",
+                journalFile.toAbsolutePath(), segmentSize / (1024 * 1024), fsync);
+    }
+
+    // ============ POSTING ============
+
+    // Must be called outside a transaction: a request waiting here for the journal must
+    // not hold a pooled connection, or waiting requests could starve the flusher that
+    // frees journal space for them
+    public TransactionResponse deposit(DepositWithdrawRequest request, Long userId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Journaled deposits must not run inside a transaction");
+        }
+        // A short read-only transaction, so the connection goes back to the pool before waiting
+        String accountNumber = readOnlyTemplate.execute(status -> {
+            Account account = accountRepository.findById(request.getAccountId())
+                    .orElseThrow(() -> new Exceptions.ResourceNotFoundException("Account not found"));
+
+            if (!account.getUser().getId().equals(userId)) {
+                throw new Exceptions.UnauthorizedAccessException("You don't have access to this account");
+            }
+            if (account.getStatus() != Account.AccountStatus.ACTIVE) {
+                throw new Exceptions.BadRequestException("Account is not active");
+            }
+            return account.getAccountNumber();
+        });
+        // The flusher can't reject a posting it has already acknowledged, so anything the
+        // database would refuse must be refused here
+        String description = request.getDescription() != null ? request.getDescription() : "Cash Deposit";
+        if (description.length() > 500) {
+            throw new Exceptions.BadRequestException("Description must be at most 500 characters");
+        }
+        if (request.getAmount().setScale(2, RoundingMode.HALF_UP).precision() > 19) {
+            throw new Exceptions.BadRequestException("Amount is too large");
+        }
+
+        String referenceNumber = "TXN" + UUID.randomUUID().toString().replace("-", "").substring(0, 12).toUpperCase();
+        Appended appended = append(request.getAccountId(), userId, request.getAmount(), referenceNumber, description);
+        try {
+            appended.synced().join();
+        } catch (CompletionException e) {
+            // Cut from the journal, so it will never be posted
+            throw new Exceptions.ServiceUnavailableException("Deposit could not be recorded, please retry");
+        }
+        // Already durable, so a claim taken over in the meantime can only be logged
+        idempotencyService.markPosted();
+
+        Transaction transaction = Transaction.builder()
+                .referenceNumber(referenceNumber)
+                .transactionType(Transaction.TransactionType.DEPOSIT)
+                .amount(request.getAmount())
+                .description(description)
+                .status(Transaction.TransactionStatus.PENDING)
+                .createdAt(appended.posting().createdAt())
+                .build();
+        return TransactionResponse.fromPosting(transaction, accountNumber, true);
+    }
+
+    private Appended append(Long accountId, Long userId, BigDecimal amount, String referenceNumber,
+                            String description) {
+        long spaceDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(spaceWaitMs);
+        appendLock.lock();
+        try {
+            while (true) {
+                if (!accepting) {
+                    throw new Exceptions.ServiceUnavailableException("Deposits are temporarily unavailable");
+                }
+                PostingJournal.Posting posting = journal.append(accountId, userId, amount, LocalDateTime.now(),
+                        referenceNumber, description);
+                if (posting != null) {
+                    unappliedByUser.merge(userId, 1, Integer::sum);
+                    Appended appended = new Appended(posting, new CompletableFuture<>());
+                    unsynced.add(appended);
+                    this.appended.signal();
+                    return appended;
+                }
+                // Segment full: wait for the flusher to apply everything in it, but only so long
+                if (!journal.rewindIfApplied()) {
+                    long remaining = spaceDeadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        meterRegistry.counter("kmbank.journal.full").increment();
+                        throw new Exceptions.ServiceUnavailableException("Deposits are busy, please retry shortly");
+                    }
+                    rewound.awaitNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exceptions.ServiceUnavailableException("Interrupted while waiting for journal space");
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // ============ GROUP COMMIT ============
+
+    private void syncLoop() {
+        while (true) {
+            List<Appended> batch;
+            appendLock.lock();
+            try {
+                while (unsynced.isEmpty() && !stopping) {
+                    appended.await();
+                }
+                if (unsynced.isEmpty()) {
+                    return;
+                }
+                batch = unsynced;
+                unsynced = new ArrayList<>();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                appendLock.unlock();
+            }
+
+            try {
+                journal.sync(fsync);
+            } catch (RuntimeException e) {
+                failSync(batch, e);
+                continue;
+            }
+            for (Appended appended : batch) {
+                unapplied.add(appended.posting());
+                appended.synced().complete(null);
+            }
+        }
+    }
+
+    // After a failed sync, whether the unsynced records reach the disk later is unknown.
+    // They are cut from the journal and their deposits fail, and the journal stops
+    // accepting deposits until a restart; what is already synced still gets applied.
+    private void failSync(List<Appended> batch, RuntimeException cause) {
+        log.error("Posting journal sync failed, no longer accepting journaled deposits", cause);
+        appendLock.lock();
+        try {
+            accepting = false;
+            List<Appended> failed = new ArrayList<>(batch);
+            failed.addAll(unsynced);
+            unsynced = new ArrayList<>();
+            try {
+                journal.truncateUnsynced();
+            } catch (RuntimeException e) {
+                log.error("Could not cut {} failed postings from the journal; check it before restarting",
+                        failed.size(), e);
+            }
+            for (Appended appended : failed) {
+                unappliedByUser.computeIfPresent(appended.posting().userId(),
+                        (userId, count) -> count > 1 ? count - 1 : null);
+                appended.synced().completeExceptionally(cause);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // ============ FLUSHING ============
+
+    // Anything escaping applyBatch (the journal failing to record the watermark, say)
+    // must not end this thread, or nothing gets applied until a restart. The same batch
+    // is retried; postings that already committed are skipped by reference number.
+    private void flushLoop() {
+        List<PostingJournal.Posting> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                if (batch.isEmpty()) {
+                    PostingJournal.Posting first = unapplied.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (stopping && !syncThread.isAlive() && unapplied.isEmpty()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    unapplied.drainTo(batch, batchSize - 1);
+                }
+                applyBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Flushing {} journaled postings failed, retrying in {} ms",
+                        batch.size(), retryBackoffMs, e);
+                try {
+                    Thread.sleep(retryBackoffMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Applies the batch in one transaction. A failure that would recur on every retry is
+    // narrowed down by applying the postings one at a time; those that still fail are
+    // parked in journal_dead_letters, so one bad posting can't hold up the journal. The
+    // applied watermark only moves once every posting in the batch is settled.
+    private void applyBatch(List<PostingJournal.Posting> batch) throws InterruptedException {
+        long start = System.nanoTime();
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(batch));
+                break;
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    log.error("Applying {} journaled postings failed, retrying in {} ms",
+                            batch.size(), retryBackoffMs, e);
+                    Thread.sleep(retryBackoffMs);
+                } else {
+                    log.warn("Batch of {} journaled postings failed, applying them one at a time",
+                            batch.size(), e);
+                    for (PostingJournal.Posting posting : batch) {
+                        applyOne(posting);
+                    }
+                    break;
+                }
+            }
+        }
+
+        Timer.builder("kmbank.journal.flush")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        // Nothing after the watermark may throw, so a retried batch isn't counted off twice
+        journal.markApplied(batch.get(batch.size() - 1).seq());
+        batch.forEach(posting -> unappliedByUser.computeIfPresent(posting.userId(),
+                (userId, count) -> count > 1 ? count - 1 : null));
+
+        appendLock.lock();
+        try {
+            rewound.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void applyOne(PostingJournal.Posting posting) throws InterruptedException {
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(List.of(posting)));
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    deadLetter(posting, e);
+                    return;
+                }
+                log.error("Applying journaled deposit {} failed, retrying in {} ms",
+                        posting.referenceNumber(), retryBackoffMs, e);
+                Thread.sleep(retryBackoffMs);
+            }
+        }
+    }
+
+    private void deadLetter(PostingJournal.Posting posting, RuntimeException cause) throws InterruptedException {
+        log.error("Journaled deposit {} of {} to account {} cannot be applied, parking it in journal_dead_letters",
+                posting.referenceNumber(), posting.amount(), posting.accountId(), cause);
+        String error = String.valueOf(NestedExceptionUtils.getMostSpecificCause(cause).getMessage());
+        JournalDeadLetter deadLetter = JournalDeadLetter.builder()
+                .journalSeq(posting.seq())
+                .referenceNumber(posting.referenceNumber())
+                .accountId(posting.accountId())
+                .userId(posting.userId())
+                .amount(posting.amount())
+                .description(posting.description())
+                .acceptedAt(posting.createdAt())
+                .error(error.length() > 1000 ? error.substring(0, 1000) : error)
+                .build();
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> journalDeadLetterRepository.save(deadLetter));
+                meterRegistry.counter("kmbank.journal.dead_letters").increment();
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    // Nowhere left to put it; the log line above has everything needed to repost it
+                    log.error("Could not park journaled deposit {}", posting.referenceNumber(), e);
+                    return;
+                }
+                Thread.sleep(retryBackoffMs);
+            }
+        }
+    }
+
+    // Failures worth retrying unchanged: the database or a connection being unavailable,
+    // lock timeouts and the like. Anything else (a constraint violation, a numeric
+    // overflow) would fail the same way again.
+    private static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException
+                    || t instanceof RecoverableDataAccessException
+                    || t instanceof NonTransientDataAccessResourceException
+                    || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            // Connection exceptions
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void apply(List<PostingJournal.Posting> batch) {
+        // Already committed or parked by a run that crashed before recording it in the journal
+        List<String> referenceNumbers = batch.stream()
+                .map(PostingJournal.Posting::referenceNumber)
+                .collect(Collectors.toList());
+        Set<String> existing = new HashSet<>(transactionRepository.findExistingReferenceNumbers(referenceNumbers));
+        existing.addAll(journalDeadLetterRepository.findExistingReferenceNumbers(referenceNumbers));
+
+        // Accounts in id order, like the other multi-account updates
+        Map<Long, List<PostingJournal.Posting>> byAccount = new TreeMap<>();
+        for (PostingJournal.Posting posting : batch) {
+            if (!existing.contains(posting.referenceNumber())) {
+                byAccount.computeIfAbsent(posting.accountId(), id -> new ArrayList<>()).add(posting);
+            }
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        List<Transaction> completed = new ArrayList<>();
+        Set<Long> userIds = new HashSet<>();
+        BigDecimal totalAmount = BigDecimal.ZERO;
+
+        for (Map.Entry<Long, List<PostingJournal.Posting>> entry : byAccount.entrySet()) {
+            List<PostingJournal.Posting> postings = entry.getValue();
+            Long userId = postings.get(0).userId();
+            BigDecimal delta = postings.stream()
+                    .map(PostingJournal.Posting::amount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+            // One update per account for the whole batch
+            BalanceUpdateProjection updated = accountRepository
+                    .applyBalanceDelta(entry.getKey(), userId, delta)
+                    .orElse(null);
+            Account account = accountRepository.getReferenceById(entry.getKey());
+
+            if (updated == null) {
+                // Closed, frozen or deleted after the deposit was accepted
+                log.warn("Account {} rejected {} journaled deposits, recording them as failed",
+                        entry.getKey(), postings.size());
+                for (PostingJournal.Posting posting : postings) {
+                    Transaction transaction = toTransaction(posting, account, null);
+                    transaction.setStatus(Transaction.TransactionStatus.FAILED);
+                    transactions.add(transaction);
+                }
+                continue;
+            }
+
+            BigDecimal runningBalance = updated.getBalance().subtract(delta);
+            for (PostingJournal.Posting posting : postings) {
+                runningBalance = runningBalance.add(posting.amount());
+                Transaction transaction = toTransaction(posting, account, runningBalance);
+                transaction.addLedgerEntry(account, userId, AccountLedgerEntry.Direction.CREDIT, runningBalance);
+                transactions.add(transaction);
+                completed.add(transaction);
+            }
+            // Journal order is accept order, so the first is the earliest
+            statementService.invalidateCheckpoints(entry.getKey(), postings.get(0).createdAt());
+            userIds.add(userId);
+            totalAmount = totalAmount.add(delta);
+        }
+
+        if (transactions.isEmpty()) {
+            return;
+        }
+        // Flushed here, so a constraint violation surfaces as such rather than as a failed commit
+        transactionRepository.saveAllAndFlush(transactions);
+        dashboardCache.evict(userIds);
+        if (!completed.isEmpty()) {
+            systemCounters.posted(Transaction.TransactionType.DEPOSIT, completed.size(), totalAmount, totalAmount);
+            transactionRollupService.record(completed);
+        }
+    }
+
+    private static Transaction toTransaction(PostingJournal.Posting posting, Account account, BigDecimal balanceAfter) {
+        return Transaction.builder()
+                .referenceNumber(posting.referenceNumber())
+                .transactionType(Transaction.TransactionType.DEPOSIT)
+                .amount(posting.amount())
+                .description(posting.description())
+                .destinationAccount(account)
+                .balanceAfter(balanceAfter)
+                .createdAt(posting.createdAt())
+                .build();
+    }
+
+    // ============ SHUTDOWN ============
+
+    // Stops accepting deposits and lets the flusher apply what has been journaled;
+    // anything it doesn't get to is replayed on the next start
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        if (journal == null) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            accepting = false;
+            stopping = true;
+            appended.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        syncThread.join();
+        flushThread.join(TimeUnit.SECONDS.toMillis(30));
+        if (flushThread.isAlive()) {
+            log.warn("{} journaled postings left for replay on the next start", unapplied.size());
+            flushThread.interrupt();
+            flushThread.join();
+        }
+        journal.close();
+    }
+
+    private record Appended(PostingJournal.Posting posting, CompletableFuture<Void> synced) {
+    }
+}
@@ -0,0 +1,4 @@
+-- Optimistic-lock version for accounts (Account.version). Adding the column with a
+-- default fills it in for existing rows; Hibernate fails on a null version.
+
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
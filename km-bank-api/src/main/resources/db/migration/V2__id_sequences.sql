@@ -0,0 +1,13 @@
+-- Pooled sequence ids for users, accounts and transactions.
+-- Replaces IDENTITY generation so Hibernate can batch inserts.
+-- INCREMENT BY must match allocationSize on each entity's @SequenceGenerator.
+-- Run before deploying on an existing database; the sequences start above the
+-- current max id so pooled blocks never collide with IDENTITY-assigned rows.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 20;
+CREATE SEQUENCE IF NOT EXISTS accounts_seq INCREMENT BY 20;
+CREATE SEQUENCE IF NOT EXISTS transactions_seq INCREMENT BY 50;
+
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) + 20 FROM users));
+SELECT setval('accounts_seq', (SELECT COALESCE(MAX(id), 0) + 20 FROM accounts));
+SELECT setval('transactions_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM transactions));
@@ -0,0 +1,22 @@
+-- Idempotency-Key claims and stored first responses (deposit, withdraw, transfer).
+-- A key is claimed with a PENDING row before the request runs, so a retry on any node
+-- sees it as taken; the posting marks it POSTED in its own transaction, and the row is
+-- COMPLETED with the response once the request succeeds.
+
+CREATE SEQUENCE IF NOT EXISTS idempotency_records_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS idempotency_records (
+    id               BIGINT       PRIMARY KEY,
+    user_id          BIGINT       NOT NULL,
+    idempotency_key  VARCHAR(255) NOT NULL,
+    request_path     VARCHAR(255) NOT NULL,
+    request_hash     VARCHAR(64)  NOT NULL,
+    status           VARCHAR(20)  NOT NULL,
+    response_status  INTEGER,
+    response_body    TEXT,
+    created_at       TIMESTAMP,
+    expires_at       TIMESTAMP    NOT NULL,
+    CONSTRAINT uk_idempotency_user_key UNIQUE (user_id, idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_expires_at ON idempotency_records (expires_at);
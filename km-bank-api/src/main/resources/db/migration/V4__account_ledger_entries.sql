@@ -0,0 +1,87 @@
+-- Double-entry ledger: one row per account leg of a transaction, written with the
+-- transaction itself. History and dashboard reads are range scans on this table.
+
+CREATE SEQUENCE IF NOT EXISTS account_ledger_entries_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS account_ledger_entries (
+    id               BIGINT PRIMARY KEY,
+    account_id       BIGINT         NOT NULL REFERENCES accounts (id),
+    user_id          BIGINT         NOT NULL,
+    transaction_id   BIGINT         NOT NULL REFERENCES transactions (id),
+    transaction_type VARCHAR(255)   NOT NULL,
+    direction        VARCHAR(255)   NOT NULL,
+    amount           NUMERIC(19, 2) NOT NULL,
+    balance_after    NUMERIC(19, 2),
+    created_at       TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_account_created
+    ON account_ledger_entries (account_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_user_created
+    ON account_ledger_entries (user_id, created_at DESC, id DESC);
+
+-- Backfill from existing transactions. transactions.balance_after is the source
+-- balance for transfers, so historic credit legs of transfers get no running balance.
+INSERT INTO account_ledger_entries (id, account_id, user_id, transaction_id, transaction_type,
+                                    direction, amount, balance_after, created_at)
+SELECT ROW_NUMBER() OVER (ORDER BY legs.transaction_id, legs.direction DESC),
+       legs.account_id, legs.user_id, legs.transaction_id, legs.transaction_type,
+       legs.direction, legs.amount, legs.balance_after, legs.created_at
+FROM (
+    SELECT t.source_account_id AS account_id, a.user_id, t.id AS transaction_id, t.transaction_type,
+           'DEBIT' AS direction, t.amount, t.balance_after, t.created_at
+    FROM transactions t
+    JOIN accounts a ON a.id = t.source_account_id
+    UNION ALL
+    SELECT t.destination_account_id, a.user_id, t.id, t.transaction_type,
+           'CREDIT', t.amount,
+           CASE WHEN t.source_account_id IS NULL THEN t.balance_after END,
+           t.created_at
+    FROM transactions t
+    JOIN accounts a ON a.id = t.destination_account_id
+) legs
+WHERE NOT EXISTS (SELECT 1 FROM account_ledger_entries);
+
+SELECT setval('account_ledger_entries_seq',
+              (SELECT COALESCE(MAX(id), 0) + 50 FROM account_ledger_entries));
+
+-- Opening balances. Welcome bonuses and any balance set without a transaction have no
+-- legs above, so the ledger would not sum to accounts.balance. Each account whose
+-- balance differs from its replayed legs gets an opening transaction for the
+-- difference, dated at account opening or just before its first leg, whichever is earlier.
+WITH replayed AS (
+    SELECT account_id,
+           SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE -amount END) AS net,
+           MIN(created_at) AS first_at
+    FROM account_ledger_entries
+    GROUP BY account_id
+), opening AS (
+    SELECT a.id AS account_id, a.user_id, a.currency,
+           a.balance - COALESCE(r.net, 0) AS delta,
+           COALESCE(LEAST(a.created_at, r.first_at - INTERVAL '1 second'), now()) AS created_at,
+           nextval('transactions_seq') AS transaction_id,
+           nextval('account_ledger_entries_seq') AS entry_id
+    FROM accounts a
+    LEFT JOIN replayed r ON r.account_id = a.id
+    WHERE a.balance <> COALESCE(r.net, 0)
+), inserted AS (
+    INSERT INTO transactions (id, reference_number, transaction_type, amount, currency, description, status,
+                              source_account_id, destination_account_id, balance_after, created_at)
+    SELECT transaction_id, 'OPN' || LPAD(account_id::text, 12, '0'),
+           CASE WHEN delta > 0 THEN 'DEPOSIT' ELSE 'WITHDRAWAL' END,
+           ABS(delta), currency, 'Opening balance', 'COMPLETED',
+           CASE WHEN delta < 0 THEN account_id END,
+           CASE WHEN delta > 0 THEN account_id END,
+           delta, created_at
+    FROM opening
+    RETURNING id
+)
+INSERT INTO account_ledger_entries (id, account_id, user_id, transaction_id, transaction_type,
+                                    direction, amount, balance_after, created_at)
+SELECT o.entry_id, o.account_id, o.user_id, o.transaction_id,
+       CASE WHEN o.delta > 0 THEN 'DEPOSIT' ELSE 'WITHDRAWAL' END,
+       CASE WHEN o.delta > 0 THEN 'CREDIT' ELSE 'DEBIT' END,
+       ABS(o.delta), o.delta, o.created_at
+FROM opening o
+JOIN inserted i ON i.id = o.transaction_id;
@@ -0,0 +1,54 @@
+-- Hourly and daily per-type posting totals for the admin analytics. Kept current by
+-- TransactionRollupService; a year of daily stats is 365 primary-key range reads.
+-- Each bucket is split into shard rows that postings add to at random; readers sum them.
+
+CREATE TABLE IF NOT EXISTS transaction_rollups_hourly (
+    bucket_start     TIMESTAMP      NOT NULL,
+    shard            INTEGER        NOT NULL,
+    deposit_count    BIGINT         NOT NULL DEFAULT 0,
+    deposit_total    NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    withdrawal_count BIGINT         NOT NULL DEFAULT 0,
+    withdrawal_total NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    transfer_count   BIGINT         NOT NULL DEFAULT 0,
+    transfer_total   NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (bucket_start, shard)
+);
+
+CREATE TABLE IF NOT EXISTS transaction_rollups_daily (
+    bucket_start     TIMESTAMP      NOT NULL,
+    shard            INTEGER        NOT NULL,
+    deposit_count    BIGINT         NOT NULL DEFAULT 0,
+    deposit_total    NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    withdrawal_count BIGINT         NOT NULL DEFAULT 0,
+    withdrawal_total NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    transfer_count   BIGINT         NOT NULL DEFAULT 0,
+    transfer_total   NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (bucket_start, shard)
+);
+
+-- Day rebuilds read raw transactions by time range
+CREATE INDEX IF NOT EXISTS idx_transactions_created ON transactions (created_at);
+
+-- Backfill existing history into shard 0
+INSERT INTO transaction_rollups_hourly
+SELECT date_trunc('hour', created_at), 0,
+       COUNT(*) FILTER (WHERE transaction_type = 'DEPOSIT'),
+       COALESCE(SUM(amount) FILTER (WHERE transaction_type = 'DEPOSIT'), 0),
+       COUNT(*) FILTER (WHERE transaction_type = 'WITHDRAWAL'),
+       COALESCE(SUM(amount) FILTER (WHERE transaction_type = 'WITHDRAWAL'), 0),
+       COUNT(*) FILTER (WHERE transaction_type = 'TRANSFER'),
+       COALESCE(SUM(amount) FILTER (WHERE transaction_type = 'TRANSFER'), 0)
+FROM transactions
+WHERE created_at IS NOT NULL
+  AND transaction_type IN ('DEPOSIT', 'WITHDRAWAL', 'TRANSFER')
+GROUP BY 1
+ON CONFLICT (bucket_start, shard) DO NOTHING;
+
+INSERT INTO transaction_rollups_daily
+SELECT date_trunc('day', bucket_start), 0,
+       SUM(deposit_count), SUM(deposit_total),
+       SUM(withdrawal_count), SUM(withdrawal_total),
+       SUM(transfer_count), SUM(transfer_total)
+FROM transaction_rollups_hourly
+GROUP BY 1
+ON CONFLICT (bucket_start, shard) DO NOTHING;
@@ -0,0 +1,21 @@
+-- Opening balance of each account at the start of a statement month. Written by
+-- StatementService at month boundaries and whenever a statement works one out.
+
+CREATE TABLE IF NOT EXISTS account_balance_checkpoints (
+    account_id      BIGINT         NOT NULL REFERENCES accounts (id),
+    period_start    DATE           NOT NULL,
+    opening_balance NUMERIC(19, 2) NOT NULL,
+    created_at      TIMESTAMP,
+    PRIMARY KEY (account_id, period_start)
+);
+
+-- Seed the current month, working back from live balances
+INSERT INTO account_balance_checkpoints (account_id, period_start, opening_balance, created_at)
+SELECT a.id, date_trunc('month', now())::date,
+       a.balance - COALESCE((SELECT SUM(CASE WHEN e.direction = 'CREDIT' THEN e.amount ELSE -e.amount END)
+                             FROM account_ledger_entries e
+                             WHERE e.account_id = a.id
+                               AND e.created_at >= date_trunc('month', now())), 0),
+       now()
+FROM accounts a
+ON CONFLICT DO NOTHING;
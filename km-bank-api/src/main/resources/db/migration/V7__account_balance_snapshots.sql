@@ -0,0 +1,9 @@
+-- Last reconciled balance per account, maintained by LedgerReconciliationService.
+-- Incremental runs only re-verify ledger entries created since snapshot_at; accounts
+-- without a row are verified from zero on the next run.
+
+CREATE TABLE IF NOT EXISTS account_balance_snapshots (
+    account_id  BIGINT PRIMARY KEY REFERENCES accounts (id),
+    balance     NUMERIC(19, 2) NOT NULL,
+    snapshot_at TIMESTAMP      NOT NULL
+);
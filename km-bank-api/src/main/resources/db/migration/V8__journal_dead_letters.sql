@@ -0,0 +1,18 @@
+-- Journaled deposits the write-behind flusher could not apply
+-- (transactions.posting-mode=journal), parked for an operator.
+
+CREATE SEQUENCE IF NOT EXISTS journal_dead_letters_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS journal_dead_letters (
+    id               BIGINT         PRIMARY KEY,
+    journal_seq      BIGINT         NOT NULL,
+    reference_number VARCHAR(255)   NOT NULL,
+    account_id       BIGINT         NOT NULL,
+    user_id          BIGINT         NOT NULL,
+    amount           NUMERIC(19, 2) NOT NULL,
+    description      VARCHAR(500),
+    accepted_at      TIMESTAMP      NOT NULL,
+    error            VARCHAR(1000),
+    created_at       TIMESTAMP,
+    CONSTRAINT uk_journal_dead_letters_reference UNIQUE (reference_number)
+);
@@ -0,0 +1,87 @@
+package com.kmbank.benchmark;
+
+import com.kmbank.entity.User;
+import com.kmbank.security.CustomUserDetails;
+import com.kmbank.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Tokens verified per second on one thread (one core):
+//   perCallParser - the old path: key and parser rebuilt per call, token parsed three times
+//   parseOnce     - cached key and parser, one parse, claims reused for validation
+//   cachedToken   - repeat token served from the verified-token cache (SHA-256 digest only)
+// Run with: mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+//           java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main JwtVerificationBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-that-is-long-enough-for-hs256-signing";
+
+    private JwtUtil jwtUtil;
+    private CustomUserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3_600_000L);
+        jwtUtil.init();
+
+        User user = User.builder().id(1L).email("bench@kmbank.test").password("x").build();
+        userDetails = new CustomUserDetails(user);
+        token = jwtUtil.generateToken(user, 0);
+    }
+
+    @Benchmark
+    public boolean perCallParser() {
+        String username = legacyClaims(token).getSubject();
+        legacyClaims(token);
+        Date expiration = legacyClaims(token).getExpiration();
+        return username.equals(userDetails.getUsername()) && !expiration.before(new Date());
+    }
+
+    @Benchmark
+    public boolean parseOnce() {
+        Claims claims = jwtUtil.parseClaims(token);
+        return jwtUtil.validateClaims(claims, userDetails);
+    }
+
+    @Benchmark
+    public boolean cachedToken() {
+        Claims claims = jwtUtil.extractAllClaims(token);
+        return jwtUtil.validateClaims(claims, userDetails);
+    }
+
+    private static Claims legacyClaims(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,121 @@
+package com.kmbank.benchmark;
+
+import com.kmbank.entity.Account;
+import com.kmbank.entity.User;
+import com.kmbank.repository.AccountLedgerEntryRepository;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.UserRepository;
+import com.kmbank.service.StatementService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.UUID;
+
+// Builds the previous month's statement for an account with 1M ledger entries spread
+// over two years, against the configured PostgreSQL database:
+//   rescan     - opening balance summed over every entry since account creation
+//   checkpoint - opening balance from the stored period checkpoint (StatementService)
+// Both stream the period's lines to a discarding output stream.
+// Run with: mvn test -Dtest=StatementBenchmark -Dbenchmark=true
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StatementBenchmark {
+
+    private static final int ENTRIES = 1_000_000;
+    private static final int MONTHS = 24;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountLedgerEntryRepository accountLedgerEntryRepository;
+    @Autowired
+    private StatementService statementService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .email("bench-" + UUID.randomUUID() + "@kmbank.test")
+                .password("x")
+                .firstName("Bench")
+                .lastName("Mark")
+                .build());
+        account = accountRepository.save(Account.builder()
+                .accountName("Benchmark")
+                .accountType(Account.AccountType.CHECKING)
+                .user(user)
+                .build());
+
+        // One 1.00 deposit per entry, evenly spaced over the last MONTHS months
+        jdbcTemplate.update("INSERT INTO transactions (id, reference_number, transaction_type, amount, currency, " +
+                        "status, destination_account_id, balance_after, created_at) " +
+                        "SELECT nextval('transactions_seq'), 'BENCH' || md5(random()::text), 'DEPOSIT', 1.00, 'PHP', " +
+                        "'COMPLETED', ?, n, now() - (? - n) * (interval '1 month' * ? / ?) " +
+                        "FROM generate_series(1, ?) AS n",
+                account.getId(), ENTRIES, MONTHS, ENTRIES, ENTRIES);
+        jdbcTemplate.update("INSERT INTO account_ledger_entries (id, account_id, user_id, transaction_id, " +
+                        "transaction_type, direction, amount, balance_after, created_at) " +
+                        "SELECT nextval('account_ledger_entries_seq'), ?, ?, t.id, 'DEPOSIT', 'CREDIT', t.amount, " +
+                        "t.balance_after, t.created_at FROM transactions t WHERE t.destination_account_id = ?",
+                account.getId(), user.getId(), account.getId());
+        jdbcTemplate.update("UPDATE accounts SET balance = ? WHERE id = ?", ENTRIES, account.getId());
+        jdbcTemplate.execute("ANALYZE account_ledger_entries");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM account_balance_checkpoints WHERE account_id = ?", account.getId());
+        jdbcTemplate.update("DELETE FROM account_ledger_entries WHERE account_id = ?", account.getId());
+        jdbcTemplate.update("DELETE FROM transactions WHERE destination_account_id = ?", account.getId());
+        accountRepository.deleteById(account.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void statementLatency() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        LocalDateTime periodStart = month.atDay(1).atStartOfDay();
+        Account statementAccount = accountRepository.findById(account.getId()).orElseThrow();
+
+        // Seed the checkpoint the monthly job would have written
+        statementService.openingBalance(account.getId(), month.atDay(1));
+
+        long[] lines = new long[1];
+        long rescan = time(() -> {
+            BigDecimal opening = accountLedgerEntryRepository.netChangeBetween(
+                    account.getId(), LocalDateTime.of(1970, 1, 1, 0, 0), periodStart);
+            lines[0] = statementService.writeStatement(statementAccount, month, OutputStream.nullOutputStream());
+            if (opening.signum() < 0) {
+                throw new IllegalStateException("Unexpected opening balance " + opening);
+            }
+        });
+        long checkpointed = time(() ->
+                statementService.writeStatement(statementAccount, month, OutputStream.nullOutputStream()));
+
+        System.out.printf("Statement of %,d lines, opening balance rescanned from creation: %,d ms%n",
+                lines[0], rescan);
+        System.out.printf("Statement of %,d lines, opening balance from checkpoint:          %,d ms%n",
+                lines[0], checkpointed);
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,114 @@
+package com.kmbank.benchmark;
+
+import com.kmbank.entity.Account;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.TransactionRepository;
+import com.kmbank.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Inserts 100k transactions two ways against the configured PostgreSQL database:
+//   before - one INSERT ... RETURNING id round trip per row (what IDENTITY forces)
+//   after  - saveAll with pooled sequence ids, sent as JDBC batches
+// Run with: mvn test -Dtest=TransactionInsertBenchmark -Dbenchmark=true
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransactionInsertBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int CHUNK = 5_000;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .email("bench-" + UUID.randomUUID() + "@kmbank.test")
+                .password("x")
+                .firstName("Bench")
+                .lastName("Mark")
+                .build());
+        account = accountRepository.save(Account.builder()
+                .accountName("Benchmark")
+                .accountType(Account.AccountType.CHECKING)
+                .user(user)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transactions WHERE destination_account_id = ?", account.getId());
+        accountRepository.deleteById(account.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void insertThroughput() {
+        long identityStyle = time(() -> {
+            for (int chunk = 0; chunk < ROWS; chunk += CHUNK) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int i = 0; i < CHUNK; i++) {
+                        jdbcTemplate.queryForObject(
+                                "INSERT INTO transactions (reference_number, transaction_type, amount, currency, " +
+                                        "status, destination_account_id, balance_after, created_at) " +
+                                        "VALUES (?, 'DEPOSIT', 1.00, 'PHP', 'COMPLETED', ?, 1.00, now()) RETURNING id",
+                                Long.class, "BENCH" + UUID.randomUUID(), account.getId());
+                    }
+                });
+            }
+        });
+
+        long batched = time(() -> {
+            for (int chunk = 0; chunk < ROWS; chunk += CHUNK) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Transaction> rows = new ArrayList<>(CHUNK);
+                    for (int i = 0; i < CHUNK; i++) {
+                        rows.add(Transaction.builder()
+                                .transactionType(Transaction.TransactionType.DEPOSIT)
+                                .amount(BigDecimal.ONE)
+                                .destinationAccount(account)
+                                .balanceAfter(BigDecimal.ONE)
+                                .build());
+                    }
+                    transactionRepository.saveAll(rows);
+                });
+            }
+        });
+
+        System.out.printf("IDENTITY-style single inserts: %,d rows in %,d ms (%,.0f inserts/s)%n",
+                ROWS, identityStyle, ROWS * 1000.0 / identityStyle);
+        System.out.printf("Sequence + JDBC batch inserts: %,d rows in %,d ms (%,.0f inserts/s)%n",
+                ROWS, batched, ROWS * 1000.0 / batched);
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
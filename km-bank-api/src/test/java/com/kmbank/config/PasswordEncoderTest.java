@@ -0,0 +1,47 @@
+package com.kmbank.config;
+
+import com.kmbank.security.BcryptCostCalibrator;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordEncoderTest {
+
+    @Test
+    void legacyAndWeakHashesMatchAndAskForUpgrade() {
+        PasswordEncoder encoder = encoder(6);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret123");
+        String weak = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret123");
+
+        assertThat(encoder.matches("secret123", legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+        assertThat(encoder.matches("secret123", weak)).isTrue();
+        assertThat(encoder.upgradeEncoding(weak)).isTrue();
+    }
+
+    @Test
+    void currentHashesAreNotUpgraded() {
+        PasswordEncoder encoder = encoder(6);
+        String current = encoder.encode("secret123");
+
+        assertThat(current).startsWith("{bcrypt}$2a$06$");
+        assertThat(encoder.matches("secret123", current)).isTrue();
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+    }
+
+    @Test
+    void calibrationStaysWithinBounds() {
+        assertThat(BcryptCostCalibrator.calibrate(0, 4, 8)).isEqualTo(4);
+        assertThat(BcryptCostCalibrator.calibrate(60_000, 4, 8)).isEqualTo(8);
+    }
+
+    private static PasswordEncoder encoder(int strength) {
+        SecurityConfig config = new SecurityConfig(null, null, null);
+        ReflectionTestUtils.setField(config, "bcryptStrength", strength);
+        ReflectionTestUtils.setField(config, "maxBcryptStrength", 16);
+        return config.passwordEncoder();
+    }
+}
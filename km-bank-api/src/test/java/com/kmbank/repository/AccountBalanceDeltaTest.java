@@ -0,0 +1,94 @@
+package com.kmbank.repository;
+
+import com.kmbank.dto.BalanceUpdateProjection;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.User;
+import com.kmbank.support.PostgresJpaTest;
+import com.kmbank.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// applyBalanceDelta is the whole of a deposit or withdrawal's balance check, so every
+// rejection has to happen in its WHERE clause and leave the row untouched.
+@PostgresJpaTest
+class AccountBalanceDeltaTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    private User owner;
+    private Account active;
+    private Account frozen;
+
+    @BeforeEach
+    void setUp() {
+        owner = entityManager.persist(TestData.user("owner@kmbank.test"));
+        active = entityManager.persist(TestData.account(owner, "100.00", Account.AccountStatus.ACTIVE));
+        frozen = entityManager.persist(TestData.account(owner, "100.00", Account.AccountStatus.FROZEN));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void creditAddsToBalanceAndBumpsVersion() {
+        Optional<BalanceUpdateProjection> updated = accountRepository
+                .applyBalanceDelta(active.getId(), owner.getId(), new BigDecimal("25.50"));
+
+        assertThat(updated).get().satisfies(projection -> {
+            assertThat(projection.getBalance()).isEqualByComparingTo("125.50");
+            assertThat(projection.getAccountNumber()).isEqualTo(active.getAccountNumber());
+        });
+        Account reloaded = reload(active);
+        assertThat(reloaded.getBalance()).isEqualByComparingTo("125.50");
+        assertThat(reloaded.getVersion()).isEqualTo(active.getVersion() + 1);
+    }
+
+    @Test
+    void debitDownToZeroIsAllowed() {
+        assertThat(accountRepository.applyBalanceDelta(active.getId(), owner.getId(), new BigDecimal("-100.00")))
+                .get().extracting(BalanceUpdateProjection::getBalance)
+                .satisfies(balance -> assertThat(balance).isEqualByComparingTo("0.00"));
+    }
+
+    @Test
+    void debitPastZeroIsRejected() {
+        assertThat(accountRepository.applyBalanceDelta(active.getId(), owner.getId(), new BigDecimal("-100.01")))
+                .isEmpty();
+        assertUnchanged(active);
+    }
+
+    @Test
+    void otherUsersAccountIsRejected() {
+        User other = entityManager.persistAndFlush(TestData.user("other@kmbank.test"));
+
+        assertThat(accountRepository.applyBalanceDelta(active.getId(), other.getId(), BigDecimal.TEN)).isEmpty();
+        assertUnchanged(active);
+    }
+
+    @Test
+    void inactiveAccountIsRejected() {
+        assertThat(accountRepository.applyBalanceDelta(frozen.getId(), owner.getId(), BigDecimal.TEN)).isEmpty();
+        assertUnchanged(frozen);
+    }
+
+    private void assertUnchanged(Account account) {
+        Account reloaded = reload(account);
+        assertThat(reloaded.getBalance()).isEqualByComparingTo("100.00");
+        assertThat(reloaded.getVersion()).isEqualTo(account.getVersion());
+    }
+
+    private Account reload(Account account) {
+        entityManager.clear();
+        return accountRepository.findById(account.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,156 @@
+package com.kmbank.repository;
+
+import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import com.kmbank.support.H2JpaTest;
+import com.kmbank.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Ledger legs are cascaded from Transaction; history reads on them must return each
+// transaction touching the account once, newest first, and stay on the
+// (account_id, created_at, id) index.
+@H2JpaTest
+class AccountLedgerEntryRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AccountLedgerEntryRepository accountLedgerEntryRepository;
+
+    private User owner;
+    private Account checking;
+    private Account savings;
+    private final List<Long> checkingHistory = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = persistUser("owner@kmbank.test");
+        User other = persistUser("other@kmbank.test");
+        checking = persistAccount(owner);
+        savings = persistAccount(owner);
+        Account otherAccount = persistAccount(other);
+
+        for (int i = 0; i < 4; i++) {
+            checkingHistory.add(persistTransaction(Transaction.TransactionType.DEPOSIT, null, checking));
+            checkingHistory.add(persistTransaction(Transaction.TransactionType.WITHDRAWAL, checking, null));
+            checkingHistory.add(persistTransaction(Transaction.TransactionType.TRANSFER, checking, savings));
+            checkingHistory.add(persistTransaction(Transaction.TransactionType.TRANSFER, otherAccount, checking));
+            persistTransaction(Transaction.TransactionType.DEPOSIT, null, otherAccount);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Collections.reverse(checkingHistory);
+    }
+
+    @Test
+    void accountHistoryListsEachTransactionNewestFirst() {
+        List<Long> expected = checkingHistory;
+
+        List<AccountLedgerEntry> entries = accountLedgerEntryRepository
+                .findByAccountId(checking.getId(), PageRequest.of(0, 100)).getContent();
+
+        assertThat(transactionIds(entries)).isEqualTo(expected);
+        assertThat(accountLedgerEntryRepository.countByAccountId(checking.getId())).isEqualTo(expected.size());
+        assertThat(entries).allSatisfy(entry -> assertThat(entry.getDirection()).isEqualTo(
+                checking.getId().equals(entry.getTransaction().getSourceAccount() != null
+                        ? entry.getTransaction().getSourceAccount().getId() : null)
+                        ? AccountLedgerEntry.Direction.DEBIT
+                        : AccountLedgerEntry.Direction.CREDIT));
+    }
+
+    @Test
+    void keysetPagesCoverHistory() {
+        List<AccountLedgerEntry> seen = new ArrayList<>();
+        List<AccountLedgerEntry> page = accountLedgerEntryRepository
+                .findFirstByAccountIdKeyset(checking.getId(), PageRequest.of(0, 3));
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            AccountLedgerEntry last = page.get(page.size() - 1);
+            page = accountLedgerEntryRepository.findNextByAccountIdKeyset(
+                    checking.getId(), last.getCreatedAt(), last.getId(), PageRequest.of(0, 3));
+        }
+
+        assertThat(seen).hasSize(16);
+        assertThat(seen.stream().map(AccountLedgerEntry::getId).distinct()).hasSize(16);
+    }
+
+    @Test
+    void userQueriesCountEachTransactionOnce() {
+        // 4 x (deposit, withdrawal, own transfer, incoming transfer)
+        assertThat(accountLedgerEntryRepository.countTransactionsByUserId(owner.getId())).isEqualTo(16);
+
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        assertThat(accountLedgerEntryRepository.sumByUserIdSince(owner.getId(),
+                Transaction.TransactionType.DEPOSIT, AccountLedgerEntry.Direction.CREDIT, since))
+                .isEqualByComparingTo("40");
+        assertThat(accountLedgerEntryRepository.sumByUserIdSince(owner.getId(),
+                Transaction.TransactionType.WITHDRAWAL, AccountLedgerEntry.Direction.DEBIT, since))
+                .isEqualByComparingTo("40");
+    }
+
+    @Test
+    void presetCreatedAtIsKeptOnTransactionAndLegs() {
+        // A write-behind deposit accepted before midnight and applied after it
+        LocalDateTime accepted = LocalDateTime.of(2026, 1, 31, 23, 59, 59);
+        Transaction transaction = Transaction.builder()
+                .transactionType(Transaction.TransactionType.DEPOSIT)
+                .amount(BigDecimal.TEN)
+                .destinationAccount(checking)
+                .createdAt(accepted)
+                .build();
+        transaction.addLedgerEntry(checking, owner.getId(), AccountLedgerEntry.Direction.CREDIT, null);
+        Long id = entityManager.persistAndFlush(transaction).getId();
+        entityManager.clear();
+
+        assertThat(entityManager.find(Transaction.class, id).getCreatedAt()).isEqualTo(accepted);
+        assertThat(entityManager.getEntityManager()
+                .createQuery("SELECT e.createdAt FROM AccountLedgerEntry e WHERE e.transaction.id = :id",
+                        LocalDateTime.class)
+                .setParameter("id", id)
+                .getResultList()).containsExactly(accepted);
+    }
+
+    @Test
+    void accountHistoryIsIndexRangeScan() {
+        String plan = entityManager.getEntityManager()
+                .createNativeQuery("EXPLAIN SELECT * FROM account_ledger_entries WHERE account_id = "
+                        + checking.getId() + " ORDER BY created_at DESC, id DESC LIMIT 10")
+                .getSingleResult()
+                .toString();
+
+        assertThat(plan).containsPattern("/\\* public\\.\\S+: account_id = ")
+                .doesNotContain("tableScan");
+    }
+
+    private static List<Long> transactionIds(List<AccountLedgerEntry> entries) {
+        return entries.stream().map(e -> e.getTransaction().getId()).collect(Collectors.toList());
+    }
+
+    private User persistUser(String email) {
+        return entityManager.persist(TestData.user(email));
+    }
+
+    private Account persistAccount(User user) {
+        return entityManager.persist(TestData.account(user));
+    }
+
+    private Long persistTransaction(Transaction.TransactionType type, Account source, Account destination) {
+        return entityManager.persist(TestData.posting(type, source, destination, "10.00")).getId();
+    }
+}
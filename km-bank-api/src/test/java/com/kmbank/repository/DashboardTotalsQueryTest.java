@@ -0,0 +1,106 @@
+package com.kmbank.repository;
+
+import com.kmbank.dto.DashboardTotalsProjection;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import com.kmbank.support.H2JpaTest;
+import com.kmbank.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The single-row dashboard CTE must return exactly what the five separate aggregate
+// queries return, including for a user with no accounts or history.
+@H2JpaTest
+class DashboardTotalsQueryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountLedgerEntryRepository accountLedgerEntryRepository;
+
+    private User owner;
+    private User newcomer;
+
+    @BeforeEach
+    void setUp() {
+        owner = persistUser("owner@kmbank.test");
+        newcomer = persistUser("new@kmbank.test");
+        User other = persistUser("other@kmbank.test");
+        Account checking = persistAccount(owner, "1500.00", Account.AccountStatus.ACTIVE);
+        Account savings = persistAccount(owner, "250.50", Account.AccountStatus.ACTIVE);
+        persistAccount(owner, "999.00", Account.AccountStatus.FROZEN);
+        Account otherAccount = persistAccount(other, "10.00", Account.AccountStatus.ACTIVE);
+
+        for (int i = 1; i <= 3; i++) {
+            persistTransaction(Transaction.TransactionType.DEPOSIT, null, checking, "100." + i);
+            persistTransaction(Transaction.TransactionType.WITHDRAWAL, checking, null, "20.0" + i);
+            persistTransaction(Transaction.TransactionType.TRANSFER, checking, savings, "5.00");
+            persistTransaction(Transaction.TransactionType.TRANSFER, otherAccount, checking, "7.00");
+            persistTransaction(Transaction.TransactionType.DEPOSIT, null, otherAccount, "1.00");
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void totalsMatchSeparateQueries() {
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+        assertParity(owner.getId(), since);
+        // Month window that excludes everything
+        assertParity(owner.getId(), LocalDateTime.now().plusDays(1));
+    }
+
+    @Test
+    void emptyUserGetsZeros() {
+        DashboardTotalsProjection totals = accountLedgerEntryRepository
+                .getDashboardTotals(newcomer.getId(), LocalDateTime.now().minusDays(1));
+
+        assertThat(totals.getTotalBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(totals.getTotalAccounts()).isZero();
+        assertThat(totals.getTotalTransactions()).isZero();
+        assertThat(totals.getMonthlyIncome()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(totals.getMonthlyExpenses()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertParity(newcomer.getId(), LocalDateTime.now().minusDays(1));
+    }
+
+    private void assertParity(Long userId, LocalDateTime since) {
+        DashboardTotalsProjection totals = accountLedgerEntryRepository.getDashboardTotals(userId, since);
+
+        assertThat(totals.getTotalBalance())
+                .isEqualByComparingTo(accountRepository.getTotalBalanceByUserId(userId));
+        assertThat(totals.getTotalAccounts())
+                .isEqualTo(accountRepository.countActiveAccountsByUserId(userId));
+        assertThat(totals.getTotalTransactions())
+                .isEqualTo(accountLedgerEntryRepository.countTransactionsByUserId(userId));
+        assertThat(totals.getMonthlyIncome()).isEqualByComparingTo(accountLedgerEntryRepository.sumByUserIdSince(
+                userId, Transaction.TransactionType.DEPOSIT, AccountLedgerEntry.Direction.CREDIT, since));
+        assertThat(totals.getMonthlyExpenses()).isEqualByComparingTo(accountLedgerEntryRepository.sumByUserIdSince(
+                userId, Transaction.TransactionType.WITHDRAWAL, AccountLedgerEntry.Direction.DEBIT, since));
+    }
+
+    private User persistUser(String email) {
+        return entityManager.persist(TestData.user(email));
+    }
+
+    private Account persistAccount(User user, String balance, Account.AccountStatus status) {
+        return entityManager.persist(TestData.account(user, balance, status));
+    }
+
+    private void persistTransaction(Transaction.TransactionType type, Account source, Account destination,
+                                    String amount) {
+        entityManager.persist(TestData.posting(type, source, destination, amount));
+    }
+}
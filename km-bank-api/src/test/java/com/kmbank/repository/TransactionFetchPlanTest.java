@@ -0,0 +1,118 @@
+package com.kmbank.repository;
+
+import com.kmbank.dto.DTOs.AdminTransactionResponse;
+import com.kmbank.dto.DTOs.TransactionResponse;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import com.kmbank.support.H2JpaTest;
+import com.kmbank.support.TestData;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Maps full pages to DTOs and counts the JDBC statements Hibernate prepared: a page
+// must cost a fixed number of queries however many rows and owners it touches.
+@H2JpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TransactionFetchPlanTest {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountLedgerEntryRepository accountLedgerEntryRepository;
+
+    private User owner;
+    private Account checking;
+
+    @BeforeEach
+    void setUp() {
+        owner = persistUser("owner@kmbank.test");
+        checking = persistAccount(owner);
+        // Every counterparty has its own owner, so lazy loading would cost one query per row
+        for (int i = 0; i < 30; i++) {
+            Account counterparty = persistAccount(persistUser("payee" + i + "@kmbank.test"));
+            persistTransaction(checking, counterparty);
+            persistTransaction(counterparty, checking);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void adminTransactionPageLoadsInTwoStatements() {
+        PageRequest pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("createdAt").descending());
+
+        assertThat(statementsFor(() -> transactionRepository.findAll(pageable)
+                .map(AdminTransactionResponse::fromEntity).getContent())).isLessThanOrEqualTo(2);
+        assertThat(statementsFor(() -> transactionRepository.findByTransactionType(
+                Transaction.TransactionType.TRANSFER, pageable)
+                .map(AdminTransactionResponse::fromEntity).getContent())).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void adminTransactionDetailLoadsInOneStatement() {
+        Long id = transactionRepository.findAll(PageRequest.of(0, 1)).getContent().get(0).getId();
+        entityManager.clear();
+
+        assertThat(statementsFor(() -> List.of(AdminTransactionResponse.fromEntity(
+                transactionRepository.findById(id).orElseThrow())))).isEqualTo(1);
+    }
+
+    @Test
+    void accountHistoryPageLoadsInTwoStatements() {
+        assertThat(statementsFor(() -> accountLedgerEntryRepository
+                .findByAccountId(checking.getId(), PageRequest.of(0, PAGE_SIZE))
+                .map(TransactionResponse::fromLedgerEntry).getContent())).isLessThanOrEqualTo(2);
+        assertThat(statementsFor(() -> accountLedgerEntryRepository
+                .findFirstByAccountIdKeyset(checking.getId(), PageRequest.of(0, PAGE_SIZE + 1)).stream()
+                .map(TransactionResponse::fromLedgerEntry).collect(Collectors.toList()))).isEqualTo(1);
+    }
+
+    @Test
+    void dashboardFeedLoadsInOneStatement() {
+        assertThat(statementsFor(() -> accountLedgerEntryRepository
+                .findRecentByUserId(owner.getId(), PageRequest.of(0, PAGE_SIZE)).stream()
+                .map(entry -> TransactionResponse.fromEntity(entry.getTransaction()))
+                .collect(Collectors.toList()))).isEqualTo(1);
+    }
+
+    private long statementsFor(Supplier<List<?>> page) {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertThat(page.get()).isNotEmpty();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User persistUser(String email) {
+        return entityManager.persist(TestData.user(email));
+    }
+
+    private Account persistAccount(User user) {
+        return entityManager.persist(TestData.account(user));
+    }
+
+    private void persistTransaction(Account source, Account destination) {
+        entityManager.persist(TestData.posting(Transaction.TransactionType.TRANSFER, source, destination, "10.00"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.kmbank.security;
+
+import com.kmbank.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private final CustomerUserDetailsService userDetailsService = mock(CustomerUserDetailsService.class);
+    private final TokenRevocationRegistry tokenRevocationRegistry = new TokenRevocationRegistry();
+    private JwtAuthenticationFilter filter;
+
+    private final User user = User.builder()
+            .id(42L)
+            .email("user@kmbank.test")
+            .password("x")
+            .role(User.Role.ADMIN)
+            .build();
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        ReflectionTestUtils.setField(jwtUtil, "secret", "test-secret-that-is-long-enough-for-hs256-signing");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        jwtUtil.init();
+        filter = new JwtAuthenticationFilter(jwtUtil, userDetailsService,
+                new PrincipalCache(new SimpleMeterRegistry(), 60, 100), tokenRevocationRegistry);
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+        when(userDetailsService.loadUserByUsername(anyString())).thenReturn(new CustomUserDetails(user));
+        // iat has second precision; make sure tokens are issued after the registry started
+        Thread.sleep(1_000);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void claimsModeAuthenticatesWithoutUserLookup() throws Exception {
+        Authentication authentication = authenticate(jwtUtil.generateToken(user, 0)).orElseThrow();
+
+        CustomUserDetails principal = (CustomUserDetails) authentication.getPrincipal();
+        assertThat(principal.isClaimsOnly()).isTrue();
+        assertThat(principal.getUser().getId()).isEqualTo(42L);
+        assertThat(principal.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void revokedTokenIsRejected() throws Exception {
+        String token = jwtUtil.generateToken(user, tokenRevocationRegistry.currentVersion(42L));
+        tokenRevocationRegistry.revoke(42L);
+
+        assertThat(authenticate(token)).isEmpty();
+        assertThat(authenticate(jwtUtil.generateToken(user, tokenRevocationRegistry.currentVersion(42L))))
+                .isPresent();
+    }
+
+    @Test
+    void legacyTokensFallBackToLookup() throws Exception {
+        Authentication authentication = authenticate(jwtUtil.generateToken(user.getEmail())).orElseThrow();
+
+        assertThat(((CustomUserDetails) authentication.getPrincipal()).isClaimsOnly()).isFalse();
+        verify(userDetailsService).loadUserByUsername("user@kmbank.test");
+    }
+
+    private Optional<Authentication> authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
@@ -0,0 +1,53 @@
+package com.kmbank.security;
+
+import com.kmbank.entity.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTest {
+
+    private final User user = User.builder().id(7L).email("user@kmbank.test").password("x").build();
+
+    @Test
+    void repeatTokenIsServedFromCache() {
+        JwtUtil jwtUtil = jwtUtil(60_000);
+        String token = jwtUtil.generateToken(user, 0);
+
+        assertThat(jwtUtil.extractAllClaims(token)).isSameAs(jwtUtil.extractAllClaims(token));
+        assertThat(jwtUtil.extractAllClaims(token).get(JwtUtil.USER_ID_CLAIM, Long.class)).isEqualTo(7L);
+    }
+
+    @Test
+    void cachedEntryIsDroppedAtTokenExpiry() throws InterruptedException {
+        JwtUtil jwtUtil = jwtUtil(1_500);
+        String token = jwtUtil.generateToken(user, 0);
+        jwtUtil.extractAllClaims(token);
+
+        Thread.sleep(2_000);
+
+        assertThatThrownBy(() -> jwtUtil.extractAllClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void tamperedTokenIsNotCached() {
+        JwtUtil jwtUtil = jwtUtil(60_000);
+        String token = jwtUtil.generateToken(user, 0);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtUtil.extractAllClaims(tampered)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwtUtil.extractAllClaims(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    private static JwtUtil jwtUtil(long expirationMs) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "test-secret-that-is-long-enough-for-hs256-signing");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expirationMs);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+}
@@ -0,0 +1,33 @@
+package com.kmbank.security;
+
+import com.kmbank.exception.Exceptions;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginRateLimiterTest {
+
+    private final LoginRateLimiter limiter = new LoginRateLimiter(5, 3, 60, 1000);
+
+    @Test
+    void limitsAttemptsPerEmailAcrossIps() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("10.0.0." + i, "User@kmbank.test");
+        }
+
+        assertThatThrownBy(() -> limiter.acquire("10.0.0.9", "user@kmbank.test"))
+                .isInstanceOf(Exceptions.TooManyRequestsException.class);
+    }
+
+    @Test
+    void limitsAttemptsPerIpAcrossEmails() {
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("10.0.0.1", "user" + i + "@kmbank.test");
+        }
+
+        assertThatThrownBy(() -> limiter.acquire("10.0.0.1", "other@kmbank.test"))
+                .isInstanceOf(Exceptions.TooManyRequestsException.class);
+        assertThatCode(() -> limiter.acquire("10.0.0.2", "other@kmbank.test")).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,47 @@
+package com.kmbank.security;
+
+import com.kmbank.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrincipalCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PrincipalCache principalCache = new PrincipalCache(meterRegistry, 60, 100);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void repeatedLookupsHitTheCache() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(principalCache.get("user@kmbank.test", this::load).getUsername())
+                    .isEqualTo("user@kmbank.test");
+        }
+
+        assertThat(loads).hasValue(1);
+        assertThat(gets("hit")).isEqualTo(4);
+        assertThat(gets("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateForcesReload() {
+        principalCache.get("user@kmbank.test", this::load);
+        principalCache.invalidate("user@kmbank.test");
+        principalCache.get("user@kmbank.test", this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private CustomUserDetails load(String email) {
+        loads.incrementAndGet();
+        return new CustomUserDetails(User.builder().email(email).password("x").build());
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "principals").tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,125 @@
+package com.kmbank.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountLockManagerTest {
+
+    private static final int THREADS = 64;
+    private static final int OPS_PER_THREAD = 2_000;
+
+    private final AccountLockManager lockManager = new AccountLockManager(1024, 5_000);
+
+    // Plain (non-atomic) balance, so any missing mutual exclusion shows up as lost updates
+    private long hotBalance;
+
+    @Test
+    void hotAccountLosesNoUpdatesUnder64Threads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    lockManager.withLock(42L, () -> {
+                        long current = hotBalance;
+                        Thread.yield();
+                        hotBalance = current + 1;
+                        return null;
+                    });
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals((long) THREADS * OPS_PER_THREAD, hotBalance);
+    }
+
+    @Test
+    void lockingOneAccountDoesNotBlockAnother() throws Exception {
+        long hot = 1L;
+        long other = findIdOnDifferentStripe(hot);
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> lockManager.withLock(hot, () -> {
+            held.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        holder.start();
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        Future<Boolean> otherAccount = single.submit(() -> lockManager.withLock(other, () -> true));
+        assertTrue(otherAccount.get(1, TimeUnit.SECONDS));
+
+        release.countDown();
+        holder.join();
+        single.shutdown();
+    }
+
+    @Test
+    void opposingTransfersDoNotDeadlock() throws Exception {
+        long a = 7L;
+        long b = findIdOnDifferentStripe(a);
+        long[] balances = {1_000_000, 1_000_000};
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean forward = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    List<Long> ids = forward ? List.of(a, b) : List.of(b, a);
+                    lockManager.withLocks(ids, () -> {
+                        int from = forward ? 0 : 1;
+                        balances[from] -= 1;
+                        balances[1 - from] += 1;
+                        return null;
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(2_000_000, balances[0] + balances[1]);
+        assertEquals(1_000_000, balances[0]);
+    }
+
+    private long findIdOnDifferentStripe(long accountId) {
+        long candidate = accountId + 1;
+        while (lockManager.stripeOf(candidate) == lockManager.stripeOf(accountId)) {
+            candidate++;
+        }
+        return candidate;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
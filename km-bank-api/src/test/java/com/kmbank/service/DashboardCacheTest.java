@@ -0,0 +1,104 @@
+package com.kmbank.service;
+
+import com.kmbank.dto.DTOs.DashboardResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DashboardCacheTest {
+
+    private final DashboardCache dashboardCache = new DashboardCache(new SimpleMeterRegistry(), 60, 100);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void repeatedLoadsAreServedFromCache() {
+        dashboardCache.get(1L, this::load);
+        dashboardCache.get(1L, this::load);
+        dashboardCache.get(2L, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void evictionIsRepeatedAfterTheWritingTransactionCompletes() {
+        dashboardCache.get(1L, this::load);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dashboardCache.evict(1L);
+            // A concurrent read between the write and its commit re-caches pre-commit totals
+            dashboardCache.get(1L, this::load);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        dashboardCache.get(1L, this::load);
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void loadRunsOutsideTheCacheAndIsSharedByConcurrentReads() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<DashboardResponse> first = pool.submit(() -> dashboardCache.get(1L, userId -> {
+                loading.countDown();
+                await(release);
+                return load(userId);
+            }));
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<DashboardResponse> second = pool.submit(() -> dashboardCache.get(1L, this::load));
+
+            // Neither an eviction nor another user's load waits for the slow one
+            dashboardCache.evict(2L);
+            dashboardCache.get(2L, this::load);
+
+            release.countDown();
+            assertThat(first.get(10, TimeUnit.SECONDS).getTotalAccounts()).isEqualTo(1L);
+            assertThat(second.get(10, TimeUnit.SECONDS).getTotalAccounts()).isEqualTo(1L);
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThatThrownBy(() -> dashboardCache.get(1L, userId -> {
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        dashboardCache.get(1L, this::load);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private DashboardResponse load(Long userId) {
+        loads.incrementAndGet();
+        return DashboardResponse.builder().totalAccounts(userId).build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.kmbank.service;
+
+import com.kmbank.entity.IdempotencyRecord;
+import com.kmbank.repository.IdempotencyRecordRepository;
+import com.kmbank.support.H2JpaTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two service instances stand in for two nodes: only the database decides who holds a
+// key, and neither node's cache may let a retry through while the first request runs.
+@H2JpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    private static final String PATH = "/transactions/deposit";
+    private static final String HASH = "a".repeat(64);
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void keyIsPendingOnOtherNodesUntilCompleted() {
+        IdempotencyService first = node(300);
+        IdempotencyService second = node(300);
+
+        IdempotencyService.Claim claim = first.claim(1L, "key-1", PATH, HASH);
+        assertThat(claim.claimed()).isTrue();
+
+        IdempotencyService.Claim retry = second.claim(1L, "key-1", PATH, HASH);
+        assertThat(retry.claimed()).isFalse();
+        assertThat(retry.record().getStatus()).isEqualTo(IdempotencyRecord.Status.PENDING);
+
+        assertThat(first.complete(claim.record(), 200, "{\"success\":true}")).isTrue();
+
+        IdempotencyRecord replayed = second.claim(1L, "key-1", PATH, HASH).record();
+        assertThat(replayed.getStatus()).isEqualTo(IdempotencyRecord.Status.COMPLETED);
+        assertThat(replayed.getResponseStatus()).isEqualTo(200);
+        assertThat(replayed.getResponseBody()).isEqualTo("{\"success\":true}");
+        // Keys are per user
+        assertThat(second.claim(2L, "key-1", PATH, HASH).claimed()).isTrue();
+    }
+
+    @Test
+    void releasedKeyCanBeClaimedAgain() {
+        IdempotencyService service = node(300);
+        IdempotencyService.Claim claim = service.claim(1L, "key-1", PATH, HASH);
+
+        service.release(claim.record());
+
+        assertThat(service.claim(1L, "key-1", PATH, HASH).claimed()).isTrue();
+    }
+
+    @Test
+    void lapsedClaimIsTakenOver() {
+        IdempotencyService crashed = node(0);
+        IdempotencyService.Claim stale = crashed.claim(1L, "key-1", PATH, HASH);
+
+        IdempotencyService.Claim takeover = node(300).claim(1L, "key-1", PATH, HASH);
+
+        assertThat(takeover.claimed()).isTrue();
+        assertThat(takeover.record().getId()).isNotEqualTo(stale.record().getId());
+        // The original request finishing late doesn't overwrite the new claim
+        assertThat(crashed.complete(stale.record(), 200, "{}")).isFalse();
+        assertThat(idempotencyRecordRepository.findById(takeover.record().getId())).get()
+                .extracting(IdempotencyRecord::getStatus).isEqualTo(IdempotencyRecord.Status.PENDING);
+    }
+
+    @Test
+    void postedClaimIsNotTakenOverWhenItsResponseIsLost() {
+        // Posted, then the node died before storing the response
+        IdempotencyService crashed = node(0);
+        IdempotencyService.Claim claim = crashed.claim(1L, "key-1", PATH, HASH);
+        crashed.bind(claim.record());
+        try {
+            assertThat(crashed.markPosted()).isTrue();
+        } finally {
+            crashed.unbind();
+        }
+
+        IdempotencyService.Claim retry = node(300).claim(1L, "key-1", PATH, HASH);
+
+        assertThat(retry.claimed()).isFalse();
+        assertThat(retry.record().getId()).isEqualTo(claim.record().getId());
+        assertThat(retry.record().getStatus()).isEqualTo(IdempotencyRecord.Status.POSTED);
+    }
+
+    @Test
+    void lateRequestCannotPostOverATakenOverClaim() {
+        IdempotencyService slow = node(0);
+        IdempotencyService.Claim stale = slow.claim(1L, "key-1", PATH, HASH);
+        IdempotencyService.Claim takeover = node(300).claim(1L, "key-1", PATH, HASH);
+
+        slow.bind(stale.record());
+        try {
+            assertThat(slow.markPosted()).isFalse();
+        } finally {
+            slow.unbind();
+        }
+        assertThat(idempotencyRecordRepository.findById(takeover.record().getId())).get()
+                .extracting(IdempotencyRecord::getStatus).isEqualTo(IdempotencyRecord.Status.PENDING);
+    }
+
+    @Test
+    void requestWithoutAKeyHasNothingToMark() {
+        assertThat(node(300).markPosted()).isTrue();
+    }
+
+    private IdempotencyService node(long pendingTimeoutSeconds) {
+        return new IdempotencyService(idempotencyRecordRepository, 24, pendingTimeoutSeconds, 100);
+    }
+}
@@ -0,0 +1,210 @@
+package com.kmbank.service;
+
+import com.kmbank.dto.DTOs.BalanceDriftResponse;
+import com.kmbank.dto.DTOs.RegisterRequest;
+import com.kmbank.dto.DTOs.ReconciliationReport;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import com.kmbank.exception.Exceptions;
+import com.kmbank.repository.AccountBalanceSnapshotRepository;
+import com.kmbank.repository.AccountLedgerEntryRepository;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.TransactionRepository;
+import com.kmbank.repository.UserRepository;
+import com.kmbank.security.JwtUtil;
+import com.kmbank.security.LoginExecutor;
+import com.kmbank.security.LoginRateLimiter;
+import com.kmbank.security.TokenRevocationRegistry;
+import com.kmbank.support.H2JpaTest;
+import com.kmbank.support.TestData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Chunks run on pool threads with their own connections, so the data is committed up
+// front instead of living in a test-managed transaction.
+@H2JpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerReconciliationServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private AccountLedgerEntryRepository accountLedgerEntryRepository;
+    @Autowired
+    private AccountBalanceSnapshotRepository snapshotRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LedgerReconciliationService reconciliationService;
+    private TransactionTemplate transactionTemplate;
+    private Account clean;
+    private Account drifted;
+
+    @BeforeEach
+    void setUp() {
+        // Chunks of one account force the range split down to every leaf
+        reconciliationService = new LedgerReconciliationService(accountRepository, snapshotRepository,
+                transactionManager, new SimpleMeterRegistry(), 2, 1, 0);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        User owner = userRepository.save(TestData.user("owner@kmbank.test"));
+        clean = accountRepository.save(TestData.account(owner));
+        drifted = accountRepository.save(TestData.account(owner));
+        accountRepository.save(TestData.account(owner));
+
+        post(clean, AccountLedgerEntry.Direction.CREDIT, "100.00");
+        post(clean, AccountLedgerEntry.Direction.DEBIT, "40.00");
+        post(drifted, AccountLedgerEntry.Direction.CREDIT, "10.00");
+        // Balance changed in place without a ledger entry
+        jdbcTemplate.update("UPDATE accounts SET balance = balance + 5 WHERE id = ?", drifted.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciliationService.destroy();
+        snapshotRepository.deleteAll();
+        accountLedgerEntryRepository.deleteAll();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void fullRunReportsDriftAndSnapshotsCleanAccounts() {
+        ReconciliationReport report = reconciliationService.reconcile(LedgerReconciliationService.Mode.FULL);
+
+        assertThat(report.getAccountsChecked()).isEqualTo(3);
+        assertThat(report.getEntriesChecked()).isEqualTo(3);
+        assertThat(report.getDriftCount()).isEqualTo(1);
+        BalanceDriftResponse drift = report.getDrifts().get(0);
+        assertThat(drift.getAccountId()).isEqualTo(drifted.getId());
+        assertThat(drift.getDrift()).isEqualByComparingTo("5.00");
+
+        assertThat(snapshotRepository.findById(clean.getId())).get()
+                .extracting(snapshot -> snapshot.getBalance().toPlainString()).isEqualTo("60.00");
+        assertThat(snapshotRepository.findById(drifted.getId())).isEmpty();
+    }
+
+    @Test
+    void incrementalRunVerifiesOnlyEntriesSinceSnapshot() {
+        reconciliationService.reconcile(LedgerReconciliationService.Mode.FULL);
+        post(clean, AccountLedgerEntry.Direction.CREDIT, "7.00");
+
+        ReconciliationReport report = reconciliationService.reconcile(LedgerReconciliationService.Mode.INCREMENTAL);
+
+        // The new entry on the clean account, plus the drifted account from zero again
+        assertThat(report.getEntriesChecked()).isEqualTo(2);
+        assertThat(report.getDrifts()).extracting(BalanceDriftResponse::getAccountId)
+                .containsExactly(drifted.getId());
+    }
+
+    @Test
+    void reportsEntriesWhoseRunningBalanceDisagrees() {
+        jdbcTemplate.update("UPDATE account_ledger_entries SET balance_after = 99 WHERE account_id = ?"
+                + " AND direction = 'DEBIT'", clean.getId());
+
+        ReconciliationReport report = reconciliationService.reconcile(LedgerReconciliationService.Mode.FULL);
+
+        assertThat(report.getDrifts()).filteredOn(drift -> drift.getAccountId().equals(clean.getId()))
+                .singleElement()
+                .satisfies(drift -> {
+                    assertThat(drift.getDrift()).isEqualByComparingTo("0");
+                    assertThat(drift.getMismatchedEntries()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void registeredAccountReconcilesClean() {
+        AuthService authService = new AuthService(userRepository, accountRepository, transactionRepository,
+                mock(TransactionRollupService.class), new BCryptPasswordEncoder(4), mock(JwtUtil.class),
+                mock(AuthenticationManager.class), mock(TokenRevocationRegistry.class),
+                mock(LoginRateLimiter.class), mock(LoginExecutor.class), new SimpleMeterRegistry(),
+                new SystemCounters(userRepository, accountRepository, transactionRepository));
+        RegisterRequest request = new RegisterRequest();
+        request.setEmail("new@kmbank.test");
+        request.setPassword("password123");
+        request.setFirstName("New");
+        request.setLastName("Customer");
+        authService.register(request);
+        Long registered = userRepository.findByEmail("new@kmbank.test").orElseThrow().getId();
+        Long account = accountRepository.findByUserId(registered).get(0).getId();
+
+        ReconciliationReport full = reconciliationService.reconcile(LedgerReconciliationService.Mode.FULL);
+        ReconciliationReport incremental = reconciliationService.reconcile(LedgerReconciliationService.Mode.INCREMENTAL);
+
+        assertThat(full.getDrifts()).extracting(BalanceDriftResponse::getAccountId).doesNotContain(account);
+        assertThat(incremental.getDrifts()).extracting(BalanceDriftResponse::getAccountId).doesNotContain(account);
+        assertThat(snapshotRepository.findById(account)).get()
+                .extracting(snapshot -> snapshot.getBalance().toPlainString()).isEqualTo("1000.00");
+    }
+
+    @Test
+    void startRejectsASecondRunWhileOneIsInProgress() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AccountRepository blockingRepository = mock(AccountRepository.class);
+        when(blockingRepository.findMinId()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        LedgerReconciliationService service = new LedgerReconciliationService(blockingRepository,
+                snapshotRepository, transactionManager, new SimpleMeterRegistry(), 1, 1, 0);
+        try {
+            ReconciliationReport report = service.start(LedgerReconciliationService.Mode.FULL);
+            assertThat(report.isRunning()).isTrue();
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> service.start(LedgerReconciliationService.Mode.FULL))
+                    .isInstanceOf(Exceptions.ConcurrentUpdateException.class);
+            assertThat(service.getLastReport()).isSameAs(report);
+        } finally {
+            release.countDown();
+            service.destroy();
+        }
+    }
+
+    // Applies the posting to the balance and writes its ledger leg, like the posting paths do
+    private void post(Account account, AccountLedgerEntry.Direction direction, String amount) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Account current = accountRepository.findById(account.getId()).orElseThrow();
+            BigDecimal delta = new BigDecimal(amount);
+            boolean credit = direction == AccountLedgerEntry.Direction.CREDIT;
+            current.setBalance(credit ? current.getBalance().add(delta) : current.getBalance().subtract(delta));
+
+            Transaction transaction = credit
+                    ? TestData.posting(Transaction.TransactionType.DEPOSIT, null, current, amount)
+                    : TestData.posting(Transaction.TransactionType.WITHDRAWAL, current, null, amount);
+            transaction.setBalanceAfter(current.getBalance());
+            transaction.getLedgerEntries().get(0).setBalanceAfter(current.getBalance());
+            transactionRepository.save(transaction);
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.kmbank.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ParallelQueryExecutorTest {
+
+    private final ParallelQueryExecutor executor = new ParallelQueryExecutor(
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), true, 4, 1_000);
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void latencyTracksTheSlowestQuery() {
+        long start = System.nanoTime();
+        List<Supplier<Integer>> results = IntStream.range(0, 4)
+                .mapToObj(i -> executor.fork(() -> slowQuery(i, 300)))
+                .collect(Collectors.toList());
+
+        assertThat(results.stream().map(Supplier::get)).containsExactly(0, 1, 2, 3);
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(900);
+    }
+
+    @Test
+    void slowQueryTimesOut() {
+        Supplier<Integer> result = executor.fork(() -> slowQuery(1, 3_000));
+
+        assertThatThrownBy(result::get).isInstanceOf(QueryTimeoutException.class);
+    }
+
+    @Test
+    void queryFailureSurfacesOnGet() {
+        Supplier<Integer> result = executor.fork(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThatThrownBy(result::get).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+    }
+
+    private static int slowQuery(int value, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
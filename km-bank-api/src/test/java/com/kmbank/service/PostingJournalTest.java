@@ -0,0 +1,136 @@
+package com.kmbank.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Recovery must hand back exactly the synced postings that were never applied, and
+// never anything torn or left over from before a rewind.
+class PostingJournalTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 14, 9, 30, 15, 123_000_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysPostingsAfterTheAppliedWatermark() throws IOException {
+        Path file = dir.resolve("postings.journal");
+        try (PostingJournal journal = PostingJournal.open(file, 64 * 1024)) {
+            assertThat(journal.recover()).isEmpty();
+            append(journal, "TXN1", "10.00");
+            append(journal, "TXN2", "20.50");
+            append(journal, "TXN3", "0.01");
+            journal.sync(true);
+            journal.markApplied(1);
+        }
+
+        try (PostingJournal journal = PostingJournal.open(file, 64 * 1024)) {
+            List<PostingJournal.Posting> pending = journal.recover();
+
+            assertThat(pending).extracting(PostingJournal.Posting::seq).containsExactly(2L, 3L);
+            PostingJournal.Posting posting = pending.get(0);
+            assertThat(posting.referenceNumber()).isEqualTo("TXN2");
+            assertThat(posting.amount()).isEqualTo(new BigDecimal("20.50"));
+            assertThat(posting.accountId()).isEqualTo(7L);
+            assertThat(posting.userId()).isEqualTo(3L);
+            assertThat(posting.createdAt()).isEqualTo(NOW);
+            assertThat(posting.description()).isEqualTo("Deposit TXN2");
+            // Sequence numbers carry on after the recovered ones
+            assertThat(append(journal, "TXN4", "1.00").seq()).isEqualTo(4L);
+        }
+    }
+
+    @Test
+    void stopsAtATornRecord() throws IOException {
+        Path file = dir.resolve("postings.journal");
+        try (PostingJournal journal = PostingJournal.open(file, 64 * 1024)) {
+            journal.recover();
+            append(journal, "TXN1", "10.00");
+            append(journal, "TXN2", "20.00");
+            journal.sync(true);
+        }
+        // Flip a byte near the end of the second record, as a write cut short would
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = 64;
+            ByteBuffer length = ByteBuffer.allocate(4);
+            for (int i = 0; i < 2; i++) {
+                channel.read(length.clear(), end);
+                end += 8 + length.flip().getInt();
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), end - 2);
+        }
+
+        try (PostingJournal journal = PostingJournal.open(file, 64 * 1024)) {
+            assertThat(journal.recover()).extracting(PostingJournal.Posting::referenceNumber)
+                    .containsExactly("TXN1");
+            // The torn record's slot is reused
+            assertThat(append(journal, "TXN3", "5.00").seq()).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    void truncateDropsEverythingAppendedSinceTheLastSync() throws IOException {
+        Path file = dir.resolve("postings.journal");
+        try (PostingJournal journal = PostingJournal.open(file, 64 * 1024)) {
+            journal.recover();
+            append(journal, "TXN1", "10.00");
+            journal.sync(true);
+            append(journal, "TXN2", "20.00");
+            append(journal, "TXN3", "30.00");
+
+            // As after a failed sync: the two unsynced postings were reported as failed
+            journal.truncateUnsynced();
+
+            assertThat(journal.getLastSeq()).isEqualTo(1L);
+            assertThat(append(journal, "TXN4", "40.00").seq()).isEqualTo(2L);
+            journal.sync(true);
+        }
+
+        try (PostingJournal journal = PostingJournal.open(file, 64 * 1024)) {
+            assertThat(journal.recover()).extracting(PostingJournal.Posting::referenceNumber)
+                    .containsExactly("TXN1", "TXN4");
+        }
+    }
+
+    @Test
+    void rewindsAFullSegmentOnlyOnceApplied() throws IOException {
+        Path file = dir.resolve("postings.journal");
+        try (PostingJournal journal = PostingJournal.open(file, 512)) {
+            journal.recover();
+            PostingJournal.Posting last = null;
+            PostingJournal.Posting posting;
+            while ((posting = append(journal, "TXN" + journal.getLastSeq(), "1.00")) != null) {
+                last = posting;
+            }
+            journal.sync(true);
+            assertThat(last.seq()).isGreaterThan(2L);
+            assertThat(journal.rewindIfApplied()).isFalse();
+
+            journal.markApplied(last.seq());
+            assertThat(journal.rewindIfApplied()).isTrue();
+            assertThat(append(journal, "TXN-NEW", "2.00").seq()).isEqualTo(last.seq() + 1);
+            journal.sync(true);
+        }
+
+        // The records left over from before the rewind are not replayed
+        try (PostingJournal journal = PostingJournal.open(file, 512)) {
+            assertThat(journal.recover()).extracting(PostingJournal.Posting::referenceNumber)
+                    .containsExactly("TXN-NEW");
+        }
+    }
+
+    private static PostingJournal.Posting append(PostingJournal journal, String reference, String amount) {
+        return journal.append(7L, 3L, new BigDecimal(amount), NOW, reference, "Deposit " + reference);
+    }
+}
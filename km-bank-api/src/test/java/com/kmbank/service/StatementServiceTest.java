@@ -0,0 +1,158 @@
+package com.kmbank.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountBalanceCheckpoint;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import com.kmbank.repository.AccountBalanceCheckpointRepository;
+import com.kmbank.repository.AccountLedgerEntryRepository;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.support.H2JpaTest;
+import com.kmbank.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Statements must agree with the ledger, start from a stored checkpoint when there is
+// one, and leave checkpoints behind for the boundaries they work out.
+@H2JpaTest
+class StatementServiceTest {
+
+    private static final YearMonth JAN = YearMonth.of(2026, 1);
+    private static final YearMonth FEB = YearMonth.of(2026, 2);
+    private static final YearMonth MAR = YearMonth.of(2026, 3);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountLedgerEntryRepository accountLedgerEntryRepository;
+    @Autowired
+    private AccountBalanceCheckpointRepository checkpointRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private StatementService statementService;
+    private Account checking;
+
+    @BeforeEach
+    void setUp() {
+        statementService = statementService(0);
+
+        User owner = entityManager.persist(TestData.user("owner@kmbank.test"));
+        checking = entityManager.persist(TestData.account(owner, "345.00", Account.AccountStatus.ACTIVE));
+
+        post(AccountLedgerEntry.Direction.CREDIT, "500.00", JAN.atDay(5).atTime(10, 0));
+        post(AccountLedgerEntry.Direction.DEBIT, "100.00", JAN.atDay(20).atTime(10, 0));
+        post(AccountLedgerEntry.Direction.CREDIT, "50.00", FEB.atDay(1).atStartOfDay());
+        post(AccountLedgerEntry.Direction.DEBIT, "30.00", FEB.atDay(14).atTime(9, 0));
+        post(AccountLedgerEntry.Direction.DEBIT, "75.00", MAR.atDay(2).atTime(9, 0));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void statementMatchesLedgerAndStoresCheckpoints() throws Exception {
+        JsonNode statement = statement(FEB);
+
+        assertThat(statement.get("openingBalance").decimalValue()).isEqualByComparingTo("400.00");
+        assertThat(statement.get("lineCount").asLong()).isEqualTo(2);
+        assertThat(statement.get("lines").get(0).get("balance").decimalValue()).isEqualByComparingTo("450.00");
+        assertThat(statement.get("totalCredits").decimalValue()).isEqualByComparingTo("50.00");
+        assertThat(statement.get("totalDebits").decimalValue()).isEqualByComparingTo("30.00");
+        assertThat(statement.get("closingBalance").decimalValue()).isEqualByComparingTo("420.00");
+
+        assertThat(checkpoint(FEB)).isEqualByComparingTo("400.00");
+        assertThat(checkpoint(MAR)).isEqualByComparingTo("420.00");
+    }
+
+    @Test
+    void openingBalanceStartsFromNearestEarlierCheckpoint() throws Exception {
+        // A checkpoint that disagrees with the ledger proves it was used instead of a rescan
+        checkpointRepository.insertIfAbsent(checking.getId(), JAN.atDay(1), new BigDecimal("1000.00"));
+
+        JsonNode statement = statement(MAR);
+
+        assertThat(statement.get("openingBalance").decimalValue()).isEqualByComparingTo("1420.00");
+        assertThat(statement.get("closingBalance").decimalValue()).isEqualByComparingTo("1345.00");
+        assertThat(checkpoint(MAR)).isEqualByComparingTo("1420.00");
+    }
+
+    @Test
+    void monthlyJobCheckpointsFromLiveBalance() {
+        statementService.checkpointCurrentMonth();
+
+        assertThat(checkpoint(YearMonth.now())).isEqualByComparingTo("345.00");
+    }
+
+    @Test
+    void checkpointsWaitUntilTheBoundaryHasSettled() throws Exception {
+        // Every boundary is still within the settle window
+        statementService = statementService(Duration.ofDays(365 * 100).toSeconds());
+
+        JsonNode statement = statement(FEB);
+        statementService.checkpointCurrentMonth();
+
+        assertThat(statement.get("openingBalance").decimalValue()).isEqualByComparingTo("400.00");
+        assertThat(checkpointRepository.count()).isZero();
+    }
+
+    @Test
+    void latePostingDropsTheCheckpointsItLandsBefore() throws Exception {
+        statement(FEB);
+        assertThat(checkpoint(MAR)).isEqualByComparingTo("420.00");
+
+        // A journaled deposit accepted on 31 January and applied after the March checkpoint
+        post(AccountLedgerEntry.Direction.CREDIT, "5.00", JAN.atEndOfMonth().atTime(23, 59));
+        accountRepository.findById(checking.getId()).orElseThrow().setBalance(new BigDecimal("350.00"));
+        entityManager.flush();
+        statementService.invalidateCheckpoints(checking.getId(), JAN.atEndOfMonth().atTime(23, 59));
+        entityManager.clear();
+
+        assertThat(checkpoint(FEB)).isNull();
+        assertThat(checkpoint(MAR)).isNull();
+        assertThat(statement(MAR).get("openingBalance").decimalValue()).isEqualByComparingTo("425.00");
+    }
+
+    private StatementService statementService(long settleSeconds) {
+        return new StatementService(accountRepository, accountLedgerEntryRepository, checkpointRepository,
+                entityManager.getEntityManager(), objectMapper, transactionManager, settleSeconds);
+    }
+
+    private JsonNode statement(YearMonth month) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statementService.writeStatement(accountRepository.findById(checking.getId()).orElseThrow(), month, out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private BigDecimal checkpoint(YearMonth month) {
+        LocalDate periodStart = month.atDay(1);
+        return checkpointRepository.findById(new AccountBalanceCheckpoint.Key(checking.getId(), periodStart))
+                .map(AccountBalanceCheckpoint::getOpeningBalance)
+                .orElse(null);
+    }
+
+    private void post(AccountLedgerEntry.Direction direction, String amount, LocalDateTime createdAt) {
+        Transaction transaction = direction == AccountLedgerEntry.Direction.CREDIT
+                ? TestData.posting(Transaction.TransactionType.DEPOSIT, null, checking, amount)
+                : TestData.posting(Transaction.TransactionType.WITHDRAWAL, checking, null, amount);
+        entityManager.persistAndFlush(transaction);
+        TestData.backdate(entityManager.getEntityManager(), transaction, createdAt);
+    }
+}
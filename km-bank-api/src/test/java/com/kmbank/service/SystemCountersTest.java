@@ -0,0 +1,87 @@
+package com.kmbank.service;
+
+import com.kmbank.entity.Transaction;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.TransactionRepository;
+import com.kmbank.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SystemCountersTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final SystemCounters counters = new SystemCounters(userRepository, accountRepository, transactionRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.count()).thenReturn(3L);
+        when(accountRepository.count()).thenReturn(5L);
+        when(transactionRepository.count()).thenReturn(40L);
+        when(accountRepository.getSystemTotalBalance()).thenReturn(new BigDecimal("1234.56"));
+        when(transactionRepository.getTotalByType(any())).thenReturn(BigDecimal.ZERO);
+        when(transactionRepository.getTotalByType(Transaction.TransactionType.DEPOSIT))
+                .thenReturn(new BigDecimal("2000.00"));
+        counters.initialize();
+    }
+
+    @Test
+    void initializesFromSourceTables() {
+        assertThat(counters.getUsers()).isEqualTo(3);
+        assertThat(counters.getAccounts()).isEqualTo(5);
+        assertThat(counters.getTransactions()).isEqualTo(40);
+        assertThat(counters.getSystemBalance()).isEqualByComparingTo("1234.56");
+        assertThat(counters.getTotalByType(Transaction.TransactionType.DEPOSIT)).isEqualByComparingTo("2000.00");
+    }
+
+    @Test
+    void postingsApplyOnlyAfterCommit() {
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK,
+                () -> counters.posted(Transaction.TransactionType.DEPOSIT, new BigDecimal("10.00"),
+                        new BigDecimal("10.00")));
+        assertThat(counters.getTransactions()).isEqualTo(40);
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED,
+                () -> counters.posted(Transaction.TransactionType.WITHDRAWAL, new BigDecimal("0.56"),
+                        new BigDecimal("-0.56")));
+        assertThat(counters.getTransactions()).isEqualTo(41);
+        assertThat(counters.getSystemBalance()).isEqualByComparingTo("1234.00");
+        assertThat(counters.getTotalByType(Transaction.TransactionType.WITHDRAWAL)).isEqualByComparingTo("0.56");
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        counters.posted(Transaction.TransactionType.TRANSFER, 7, new BigDecimal("70.00"), BigDecimal.ZERO);
+        when(transactionRepository.count()).thenReturn(45L);
+
+        counters.reconcile();
+
+        assertThat(counters.getTransactions()).isEqualTo(45);
+        assertThat(counters.getTotalByType(Transaction.TransactionType.TRANSFER)).isEqualByComparingTo("0");
+    }
+
+    private static void inTransaction(int outcome, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                if (outcome == TransactionSynchronization.STATUS_COMMITTED) {
+                    sync.afterCommit();
+                }
+                sync.afterCompletion(outcome);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.kmbank.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import com.kmbank.repository.TransactionRepository;
+import com.kmbank.support.H2JpaTest;
+import com.kmbank.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Export output must honour every filter, quote CSV fields per RFC 4180 and emit one
+// JSON document per line.
+@H2JpaTest
+class TransactionExportServiceTest {
+
+    private static final LocalDateTime JAN = LocalDateTime.of(2026, 1, 10, 12, 0);
+    private static final LocalDateTime FEB = LocalDateTime.of(2026, 2, 10, 12, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private TransactionExportService exportService;
+    private Account checking;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new TransactionExportService(transactionRepository, entityManager.getEntityManager(),
+                transactionManager, objectMapper);
+
+        User owner = TestData.user("owner@kmbank.test");
+        owner.setFirstName("Juan");
+        owner.setLastName("Dela Cruz");
+        entityManager.persist(owner);
+        checking = entityManager.persist(TestData.account(owner));
+        Account savings = entityManager.persist(TestData.account(owner));
+
+        persist(Transaction.TransactionType.DEPOSIT, null, checking, "Payroll, January", JAN);
+        persist(Transaction.TransactionType.WITHDRAWAL, checking, null, "ATM \"Main\"", JAN);
+        persist(Transaction.TransactionType.TRANSFER, checking, savings, "Savings", FEB);
+        persist(Transaction.TransactionType.DEPOSIT, null, savings, "Interest", FEB);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void csvExportAppliesFiltersAndQuotes() {
+        List<String> lines = export(TransactionExportService.Format.CSV, null, null, null, checking.getId());
+
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).startsWith("id,referenceNumber,transactionType,amount");
+        assertThat(lines.get(1)).contains(",DEPOSIT,", "\"Payroll, January\"");
+        assertThat(lines.get(2)).contains(",WITHDRAWAL,", "\"ATM \"\"Main\"\"\"", "Juan Dela Cruz");
+        assertThat(lines.get(3)).contains(",TRANSFER,");
+
+        assertThat(export(TransactionExportService.Format.CSV, Transaction.TransactionType.DEPOSIT,
+                null, null, null)).hasSize(3);
+    }
+
+    @Test
+    void csvExportNeutralizesFormulas() {
+        LocalDateTime march = FEB.plusMonths(1);
+        persist(Transaction.TransactionType.DEPOSIT, null, checking, "=HYPERLINK(\"http://x\",\"y\")", march);
+        persist(Transaction.TransactionType.DEPOSIT, null, checking, "@SUM(A1)", march.plusHours(1));
+        persist(Transaction.TransactionType.DEPOSIT, null, checking, "-1+2", march.plusHours(2));
+
+        List<String> lines = export(TransactionExportService.Format.CSV, null, march.minusDays(1), march.plusDays(1), null);
+
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(1)).contains(",\"'=HYPERLINK(\"\"http://x\"\",\"\"y\"\")\",");
+        assertThat(lines.get(2)).contains(",\"'@SUM(A1)\",");
+        assertThat(lines.get(3)).contains(",\"'-1+2\",");
+    }
+
+    @Test
+    void ndjsonExportWritesOneDocumentPerLine() throws Exception {
+        List<String> lines = export(TransactionExportService.Format.NDJSON, null, FEB.minusDays(1), FEB.plusDays(1), null);
+
+        assertThat(lines).hasSize(2);
+        List<String> types = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            types.add(node.get("transactionType").asText());
+            assertThat(node.get("createdAt")).isNotNull();
+        }
+        assertThat(types).containsExactly("TRANSFER", "DEPOSIT");
+    }
+
+    private List<String> export(TransactionExportService.Format format, Transaction.TransactionType type,
+                                LocalDateTime from, LocalDateTime to, Long accountId) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(format, type, from, to, accountId, out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private void persist(Transaction.TransactionType type, Account source, Account destination,
+                         String description, LocalDateTime createdAt) {
+        Transaction transaction = TestData.posting(type, source, destination, "10.00");
+        transaction.setDescription(description);
+        entityManager.persistAndFlush(transaction);
+        TestData.backdate(entityManager.getEntityManager(), transaction, createdAt);
+    }
+}
@@ -0,0 +1,148 @@
+package com.kmbank.service;
+
+import com.kmbank.entity.DailyTransactionRollup;
+import com.kmbank.entity.HourlyTransactionRollup;
+import com.kmbank.entity.Transaction;
+import com.kmbank.repository.DailyTransactionRollupRepository;
+import com.kmbank.repository.HourlyTransactionRollupRepository;
+import com.kmbank.repository.TransactionRepository;
+import com.kmbank.support.H2JpaTest;
+import com.kmbank.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Rebuilt buckets must match the raw transactions, and recorded postings must reach
+// both rollup tables with their transaction, and only if it committed.
+@H2JpaTest
+@Import(TransactionRollupService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 14);
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private HourlyTransactionRollupRepository hourlyRepository;
+    @Autowired
+    private DailyTransactionRollupRepository dailyRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        hourlyRepository.deleteAll();
+        dailyRepository.deleteAll();
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    void rebuildMatchesRawTransactions() {
+        LocalDateTime morning = DAY.atTime(9, 5);
+        persist(Transaction.TransactionType.DEPOSIT, "100.00", morning);
+        persist(Transaction.TransactionType.DEPOSIT, "50.25", morning.plusMinutes(40));
+        persist(Transaction.TransactionType.WITHDRAWAL, "20.00", DAY.atTime(17, 30));
+        persist(Transaction.TransactionType.TRANSFER, "7.50", DAY.atTime(17, 59));
+        persist(Transaction.TransactionType.DEPOSIT, "1.00", DAY.plusDays(1).atTime(0, 0));
+
+        transactionRollupService.rebuild(DAY, DAY.plusDays(1));
+        transactionRollupService.rebuild(DAY, DAY);
+
+        List<HourlyTransactionRollup> hourly = transactionRollupService.getHourly(DAY.atStartOfDay());
+        assertThat(hourly).extracting(HourlyTransactionRollup::getBucketStart)
+                .containsExactly(DAY.atTime(9, 0), DAY.atTime(17, 0), DAY.plusDays(1).atStartOfDay());
+        assertThat(hourly.get(0).getDepositCount()).isEqualTo(2);
+        assertThat(hourly.get(0).getDepositTotal()).isEqualByComparingTo("150.25");
+
+        List<DailyTransactionRollup> daily = transactionRollupService.getDaily(DAY.atTime(12, 0));
+        assertThat(daily).hasSize(2);
+        DailyTransactionRollup first = daily.get(0);
+        assertThat(first.getDepositTotal()).isEqualByComparingTo("150.25");
+        assertThat(first.getWithdrawalCount()).isEqualTo(1);
+        assertThat(first.getWithdrawalTotal()).isEqualByComparingTo("20.00");
+        assertThat(first.getTransferTotal()).isEqualByComparingTo("7.50");
+        assertThat(first.getTransactionCount()).isEqualTo(4);
+        assertThat(daily.get(1).getTransactionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void postingsReachRollupsWithTheirTransaction() {
+        persist(Transaction.TransactionType.DEPOSIT, "10.00", DAY.atTime(9, 0));
+        transactionRollupService.rebuild(DAY, DAY);
+
+        transactionTemplate.executeWithoutResult(status -> transactionRollupService.record(List.of(
+                posting(Transaction.TransactionType.DEPOSIT, "5.00", DAY.atTime(9, 30)),
+                posting(Transaction.TransactionType.TRANSFER, "2.00", DAY.atTime(11, 15)))));
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionRollupService.record(posting(Transaction.TransactionType.DEPOSIT, "99.00", DAY.atTime(9, 0)));
+            status.setRollbackOnly();
+        });
+
+        List<HourlyTransactionRollup> hourly = transactionRollupService.getHourly(DAY.atStartOfDay());
+        assertThat(hourly).hasSize(2);
+        assertThat(hourly.get(0).getDepositTotal()).isEqualByComparingTo("15.00");
+        assertThat(hourly.get(1).getTransferCount()).isEqualTo(1);
+
+        DailyTransactionRollup daily = transactionRollupService.getDaily(DAY.atStartOfDay()).get(0);
+        assertThat(daily.getDepositCount()).isEqualTo(2);
+        assertThat(daily.getDepositTotal()).isEqualByComparingTo("15.00");
+        assertThat(daily.getTransferTotal()).isEqualByComparingTo("2.00");
+    }
+
+    @Test
+    void shardsAreSummedAndRebuildCountsEachPostingOnce() {
+        for (int i = 0; i < 20; i++) {
+            LocalDateTime createdAt = DAY.atTime(14, i);
+            transactionTemplate.executeWithoutResult(status -> {
+                persist(Transaction.TransactionType.DEPOSIT, "1.50", createdAt);
+                transactionRollupService.record(posting(Transaction.TransactionType.DEPOSIT, "1.50", createdAt));
+            });
+        }
+
+        assertThat(transactionRollupService.getHourly(DAY.atStartOfDay())).singleElement()
+                .satisfies(rollup -> assertThat(rollup.getDepositTotal()).isEqualByComparingTo("30.00"));
+
+        // A rebuild replaces the shards with the recount rather than adding to them
+        transactionRollupService.rebuild(DAY, DAY);
+        DailyTransactionRollup daily = transactionRollupService.getDaily(DAY.atStartOfDay()).get(0);
+        assertThat(daily.getDepositCount()).isEqualTo(20);
+        assertThat(daily.getDepositTotal()).isEqualByComparingTo("30.00");
+        assertThat(dailyRepository.count()).isEqualTo(1);
+
+        transactionRollupService.record(posting(Transaction.TransactionType.WITHDRAWAL, "4.00", DAY.atTime(15, 0)));
+        assertThat(transactionRollupService.getDaily(DAY.atStartOfDay()).get(0).getTransactionCount()).isEqualTo(21);
+    }
+
+    private void persist(Transaction.TransactionType type, String amount, LocalDateTime createdAt) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Transaction transaction = transactionRepository.saveAndFlush(posting(type, amount, null));
+            TestData.backdate(entityManager, transaction, createdAt);
+        });
+    }
+
+    private static Transaction posting(Transaction.TransactionType type, String amount, LocalDateTime createdAt) {
+        return Transaction.builder()
+                .transactionType(type)
+                .amount(new BigDecimal(amount))
+                .balanceAfter(BigDecimal.ZERO)
+                .createdAt(createdAt)
+                .build();
+    }
+}
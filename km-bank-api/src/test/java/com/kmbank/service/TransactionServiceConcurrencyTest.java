@@ -0,0 +1,152 @@
+package com.kmbank.service;
+
+import com.kmbank.dto.DTOs.DepositWithdrawRequest;
+import com.kmbank.dto.DTOs.TransferRequest;
+import com.kmbank.entity.Account;
+import com.kmbank.entity.User;
+import com.kmbank.repository.AccountRepository;
+import com.kmbank.repository.UserRepository;
+import com.kmbank.support.PostgresContainerConfig;
+import com.kmbank.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Deposits and withdrawals (one conditional UPDATE each) race transfers (account locks
+// or version retries) on the same two accounts. Nothing may be lost: each balance ends
+// where the postings say it should, and equals the sum of its ledger legs.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "jwt.secret=test-secret-that-is-long-enough-for-hs256-signing",
+        "jwt.expiration=3600000",
+        "cors.allowed-origins=http://localhost"
+})
+@ActiveProfiles("postgres")
+@Import(PostgresContainerConfig.class)
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+    private Account checking;
+    private Account savings;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(TestData.user(UUID.randomUUID() + "@kmbank.test"));
+        checking = accountRepository.save(TestData.account(owner));
+        savings = accountRepository.save(TestData.account(owner));
+        transactionService.deposit(amountOn(checking, "1000.00"), owner.getId());
+        transactionService.deposit(amountOn(savings, "1000.00"), owner.getId());
+    }
+
+    @Test
+    void concurrentPostingsLoseNothing() throws Exception {
+        runConcurrentPostings();
+    }
+
+    @Nested
+    @TestPropertySource(properties = {
+            "transactions.concurrency-mode=optimistic",
+            "transactions.optimistic.max-attempts=100"
+    })
+    class Optimistic {
+
+        @Test
+        void concurrentPostingsLoseNothing() throws Exception {
+            runConcurrentPostings();
+        }
+    }
+
+    // Each round deposits 3 and withdraws 2 on checking, and moves 1 each way between
+    // checking and savings
+    private void runConcurrentPostings() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int i = 0; i < ROUNDS; i++) {
+                        transactionService.deposit(amountOn(checking, "3.00"), owner.getId());
+                        transactionService.transfer(transfer(checking, savings), owner.getId());
+                        transactionService.withdraw(amountOn(checking, "2.00"), owner.getId());
+                        transactionService.transfer(transfer(savings, checking), owner.getId());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BigDecimal expectedChecking = new BigDecimal("1000.00").add(BigDecimal.valueOf(THREADS * ROUNDS));
+        assertThat(balance(checking)).isEqualByComparingTo(expectedChecking);
+        assertThat(balance(savings)).isEqualByComparingTo("1000.00");
+        assertThat(ledgerSum(checking)).isEqualByComparingTo(expectedChecking);
+        assertThat(ledgerSum(savings)).isEqualByComparingTo("1000.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM account_ledger_entries WHERE account_id = ?", Long.class, checking.getId()))
+                .isEqualTo(1 + 4L * THREADS * ROUNDS);
+    }
+
+    private BigDecimal balance(Account account) {
+        return accountRepository.findById(account.getId()).orElseThrow().getBalance();
+    }
+
+    private BigDecimal ledgerSum(Account account) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(CASE WHEN direction = 'CREDIT' "
+                + "THEN amount ELSE -amount END), 0) FROM account_ledger_entries WHERE account_id = ?",
+                BigDecimal.class, account.getId());
+    }
+
+    private static DepositWithdrawRequest amountOn(Account account, String amount) {
+        DepositWithdrawRequest request = new DepositWithdrawRequest();
+        request.setAccountId(account.getId());
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+
+    private static TransferRequest transfer(Account source, Account destination) {
+        TransferRequest request = new TransferRequest();
+        request.setSourceAccountId(source.getId());
+        request.setDestinationAccountNumber(destination.getAccountNumber());
+        request.setAmount(BigDecimal.ONE);
+        return request;
+    }
+}
@@ -0,0 +1,73 @@
+package com.kmbank.support;
+
+import com.kmbank.entity.Account;
+import com.kmbank.entity.AccountLedgerEntry;
+import com.kmbank.entity.Transaction;
+import com.kmbank.entity.User;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Unsaved entities for repository and service tests; each test persists them the way
+// its transaction setup needs
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static User user(String email) {
+        return User.builder()
+                .email(email)
+                .password("secret")
+                .firstName("Test")
+                .lastName("User")
+                .build();
+    }
+
+    public static Account account(User user) {
+        return account(user, "0.00", Account.AccountStatus.ACTIVE);
+    }
+
+    public static Account account(User user, String balance, Account.AccountStatus status) {
+        return Account.builder()
+                .accountName("Test")
+                .accountType(Account.AccountType.CHECKING)
+                .balance(new BigDecimal(balance))
+                .status(status)
+                .user(user)
+                .build();
+    }
+
+    // A posting with a debit leg on the source and a credit leg on the destination,
+    // whichever of the two are set
+    public static Transaction posting(Transaction.TransactionType type, Account source, Account destination,
+                                      String amount) {
+        Transaction transaction = Transaction.builder()
+                .transactionType(type)
+                .amount(new BigDecimal(amount))
+                .sourceAccount(source)
+                .destinationAccount(destination)
+                .build();
+        if (source != null) {
+            transaction.addLedgerEntry(source, source.getUser().getId(), AccountLedgerEntry.Direction.DEBIT, null);
+        }
+        if (destination != null) {
+            transaction.addLedgerEntry(destination, destination.getUser().getId(),
+                    AccountLedgerEntry.Direction.CREDIT, null);
+        }
+        return transaction;
+    }
+
+    // created_at is stamped on insert, so back-date a flushed posting and its legs afterwards
+    public static void backdate(EntityManager entityManager, Transaction transaction, LocalDateTime createdAt) {
+        entityManager.createQuery("UPDATE Transaction t SET t.createdAt = :createdAt WHERE t.id = :id")
+                .setParameter("createdAt", createdAt)
+                .setParameter("id", transaction.getId())
+                .executeUpdate();
+        entityManager.createQuery("UPDATE AccountLedgerEntry e SET e.createdAt = :createdAt WHERE e.transaction.id = :id")
+                .setParameter("createdAt", createdAt)
+                .setParameter("id", transaction.getId())
+                .executeUpdate();
+    }
+}